@@ -1,7 +1,10 @@
 package fr.umlv.wallj.bomb;
 
 import java.awt.Color;
+import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
 import java.awt.geom.Ellipse2D;
 import java.util.Objects;
 
@@ -14,6 +17,8 @@ import org.jbox2d.dynamics.FixtureDef;
 import org.jbox2d.dynamics.World;
 
 import fr.umlv.wallj.display.Displayable;
+import fr.umlv.wallj.display.ShapeBatch;
+import fr.umlv.wallj.game.CollisionCategory;
 import fr.umlv.wallj.game.Sizes;
 
 /**
@@ -27,14 +32,30 @@ import fr.umlv.wallj.game.Sizes;
  * It varies from 0 to the length/width of the board. 
  * The {@code exp} field is the description of the explosion of the bomb. It contains all the information
  * about the explosion, and is null until the bomb explode
+ * The {@code explosion} field is the explosion the bomb fires when it explodes. The bomb never moves, 
+ * so it is created once with the bomb, and fired again when a level is retried : exploding doesn't allocate.
+ * The {@code shape} field is the circle drawn for the bomb. The bomb never moves, so it is built once.
+ * The {@code LABELS} array caches the timer labels, one per tenth of second, 
+ * so drawing the timer does not format a new String every frame.
+ * The {@code glyphs} field caches the glyph vectors of the labels drawn by this bomb, one per tenth of second, 
+ * for the {@code glyphFont} and the {@code glyphContext} they were laid out with. 
+ * So drawing the timer does not lay out the label every frame either.
  * @author Séverin Gosset - Denis Biguenet
  */
 public class Bomb implements Displayable {
+	private static final int MAX_TIME = 99;
+	private static final String[] LABELS = new String[MAX_TIME * 10 + 1];
+	
 	private double timeLeft;
 	private final Body body;
 	private final int x;
 	private final int y;
+	private final Ellipse2D.Float shape;
 	private Explosion exp;
+	private final Explosion explosion;
+	private GlyphVector[] glyphs;
+	private Font glyphFont;
+	private FontRenderContext glyphContext;
 	
 	private Bomb(int x, int y, Body body) {
 		if (x < 0 || y < 0)
@@ -43,6 +64,10 @@ public class Bomb implements Displayable {
 		this.x = x;
 		this.y = y;
 		this.body = Objects.requireNonNull(body);
+		Vec2 location = body.getPosition();
+		this.shape = new Ellipse2D.Float(location.x - Sizes.STEP / 2, location.y - Sizes.STEP / 2, 
+				Sizes.BOMB_RADIUS * 2, Sizes.BOMB_RADIUS * 2);
+		this.explosion = new Explosion(location, 32);
 		// While the bomb doesn't explode there is no explosion.
 		this.exp = null;
 	}
@@ -61,12 +86,14 @@ public class Bomb implements Displayable {
 				Sizes.TOP_MARGIN + (x * Sizes.STEP) + Sizes.STEP / 2);
 		bombDef.type = BodyType.STATIC;
 		body = world.createBody(bombDef);
+		body.setUserData(CollisionCategory.BOMB);
 		CircleShape cs = new CircleShape();
 		cs.m_radius = Sizes.BOMB_RADIUS;
 		FixtureDef fixDef = new FixtureDef();
 		fixDef.density = 1;
 		fixDef.shape = cs;
 		fixDef.restitution = 0.85f;
+		CollisionCategory.BOMB.applyTo(fixDef);
 		body.createFixture(fixDef);
 		return new Bomb(x, y, body);
 	}
@@ -75,7 +102,7 @@ public class Bomb implements Displayable {
 	 * Increase the time left before the explosion of the bomb (max 99s)
 	 */
 	public void incrementTimeLeft(){
-		if(timeLeft < 99)
+		if(timeLeft < MAX_TIME)
 			timeLeft++;
 	}
 	
@@ -98,6 +125,25 @@ public class Bomb implements Displayable {
 			decrementTimeLeft(1);
 	}
 	
+	/**
+	 * Resets the bomb as it was before its explosion, with the given time left.
+	 * @param timeLeft the time left before the explosion.
+	 */
+	public void reset(double timeLeft) {
+		this.timeLeft = timeLeft;
+		exp = null;
+		body.setActive(true);
+	}
+	
+	/**
+	 * Adds or removes the body of the bomb from the world. A bomb taken back by the player must not 
+	 * stay in the world, but its body is kept so the bomb can be restored.
+	 * @param active true to add the bomb in the world, false to remove it.
+	 */
+	public void setActive(boolean active) {
+		body.setActive(active);
+	}
+	
 	/**
 	 * Returns the time left before the explosion of the bomb
 	 * @return the time.
@@ -133,48 +179,149 @@ public class Bomb implements Displayable {
 	}
 	
 	/**
-	 * Draws the Bomb on the given graphics context. A bomb is represented by a orange filled circle.
-	 * If the explosion has been done, it will also be drawn.
+	 * Returns the label of the timer, rounded up to the tenth of second.
+	 * Labels are formatted the first time they are needed, and then reused.
+	 * @param timeLeft the time left before the explosion.
+	 * @return the label of the timer.
+	 */
+	private static String label(double timeLeft) {
+		int tenths = tenths(timeLeft);
+		String label = LABELS[tenths];
+		if (label == null) {
+			label = (tenths / 10) + "." + (tenths % 10);
+			LABELS[tenths] = label;
+		}
+		return label;
+	}
+	
+	private static int tenths(double timeLeft) {
+		return (int) Math.ceil(Math.max(timeLeft, 0) * 10 - 1e-6);
+	}
+	
+	/**
+	 * Returns the glyph vector of the label of the timer, in the font of the given graphics. 
+	 * The glyph vectors are laid out the first time they are needed, and then reused while the font doesn't change.
+	 * @param graphics the graphics in which the label will be drawn.
+	 * @param timeLeft the time left before the explosion.
+	 * @return the glyph vector of the label.
+	 */
+	private GlyphVector glyphs(Graphics2D graphics, double timeLeft) {
+		Font font = graphics.getFont();
+		FontRenderContext context = graphics.getFontRenderContext();
+		if (glyphs == null || !font.equals(glyphFont) || !context.equals(glyphContext)) {
+			glyphs = new GlyphVector[LABELS.length];
+			glyphFont = font;
+			glyphContext = context;
+		}
+		int tenths = tenths(timeLeft);
+		GlyphVector glyph = glyphs[tenths];
+		if (glyph == null) {
+			glyph = font.createGlyphVector(context, label(timeLeft));
+			glyphs[tenths] = glyph;
+		}
+		return glyph;
+	}
+	
+	/**
+	 * Returns the abscissa of the bomb on the board, which is its row.
+	 * @return the x of the bomb.
+	 */
+	public int getX() {
+		return x;
+	}
+	
+	/**
+	 * Returns the ordinate of the bomb on the board, which is its column.
+	 * @return the y of the bomb.
+	 */
+	public int getY() {
+		return y;
+	}
+	
+	/**
+	 * Returns the explosion of the bomb.
+	 * @return the explosion, or null if the bomb has not exploded.
+	 */
+	public Explosion getExplosion() {
+		return exp;
+	}
+	
+	/**
+	 * Tells if the explosion of a bomb with the given time left must still be drawn : 
+	 * an explosion is drawn during {@code Sizes.EXPLOSION_LIFETIME} seconds, and then disappears.
+	 * @param timeLeft the time left before the explosion, negative after it.
+	 * @return true if the explosion is visible.
+	 */
+	private static boolean isExplosionVisible(double timeLeft) {
+		return timeLeft > -Sizes.EXPLOSION_LIFETIME;
+	}
+	
+	/**
+	 * Draws the Bomb on the given graphics context, as it is before its explosion : 
+	 * a orange filled circle, with the time left set by the player.
+	 * The time left is not decremented during the physics phase, the board computes the elapsed time from its ticks, 
+	 * so this form can't tell when an explosion is over, and never draws it. 
+	 * During the physics phase, the bombs are drawn with {@code draw(graphics, timeLeft, exp)}.
 	 * @param graphics the graphics in which the bomb must be drawn.
 	 */
 	@Override
 	public void draw(Graphics2D graphics) {
-		Vec2 location = body.getPosition();
+		draw(graphics, timeLeft, null);
+	}
+	
+	/**
+	 * Draws the Bomb on the given graphics context, in the given state rather than in its current one.
+	 * It is used to draw a snapshot of the bomb while the physics thread keeps running it.
+	 * @param graphics the graphics in which the bomb must be drawn.
+	 * @param timeLeft the time left before the explosion.
+	 * @param exp the explosion of the bomb, or null if it has not exploded.
+	 */
+	public void draw(Graphics2D graphics, double timeLeft, Explosion exp) {
 	    graphics.setColor(Color.ORANGE);
-	    /* graphics.fill(new Ellipse2D.Float(
-	    		y * Sizes.STEP + Sizes.TOP_MARGIN, 
-				x * Sizes.STEP + Sizes.LEFT_MARGIN, 
-				Sizes.BOMB_DIAMETER, Sizes.BOMB_DIAMETER)); */
-	    graphics.fill(new Ellipse2D.Float(
-		location.x - Sizes.STEP / 2, location.y - Sizes.STEP / 2,
-		Sizes.BOMB_RADIUS * 2, Sizes.BOMB_RADIUS * 2));
+	    graphics.fill(shape);
 	    if(exp == null) {
-		    graphics.setColor(Color.BLACK);
-	    	graphics.drawString(Double.toString(timeLeft), 
-	    			y * Sizes.STEP + Sizes.TOP_MARGIN, 
-	    			x * Sizes.STEP + Sizes.LEFT_MARGIN);
+	    	drawLabel(graphics, timeLeft, exp);
 	    }
-    	else {
+    	else if (isExplosionVisible(timeLeft)) {
 			exp.draw(graphics);
 		}
 	}
 	
+	/**
+	 * Adds the bomb to the given batches instead of drawing it, so all the bombs are drawn with a few fills : 
+	 * its circle to the bodies, and the rays of its explosion to the rays, until its lifetime is over. 
+	 * The label is not batched, it must be drawn with {@code drawLabel}.
+	 * @param bodies the batch of the circles of the bombs.
+	 * @param rays the batch of the rays of the explosions.
+	 * @param timeLeft the time left before the explosion.
+	 * @param exp the explosion of the bomb, or null if it has not exploded.
+	 */
+	public void addTo(ShapeBatch bodies, ShapeBatch rays, double timeLeft, Explosion exp) {
+		bodies.add(shape);
+		if (exp != null && isExplosionVisible(timeLeft))
+			exp.addTo(rays);
+	}
+	
+	/**
+	 * Draws the label of the timer of the bomb, if it has not exploded.
+	 * @param graphics the graphics in which the label must be drawn.
+	 * @param timeLeft the time left before the explosion.
+	 * @param exp the explosion of the bomb, or null if it has not exploded.
+	 */
+	public void drawLabel(Graphics2D graphics, double timeLeft, Explosion exp) {
+		if (exp == null) {
+			graphics.setColor(Color.BLACK);
+			graphics.drawGlyphVector(glyphs(graphics, timeLeft), 
+					y * Sizes.STEP + Sizes.TOP_MARGIN, 
+					x * Sizes.STEP + Sizes.LEFT_MARGIN);
+		}
+	}
+	
 	/**
 	 * Makes the bomb explode, applying all the forces on the moveable situaded inside the radius of the explosion.
 	 */
 	public void explode() {
-		Vec2 location = body.getPosition();
-		this.exp = new Explosion(location, 32);
-		/* Etrange : faut inverser les coordonnées, c'est degueu mais sinon ça marche pas */
-		float x =  location.x;
-		location.x = location.y;
-		location.y = x;
-		for (Vec2 end : exp.getEndList()) {
-			body.m_world.raycast(exp, location, end);
-		}
-		
-		x =  location.x;
-		location.x = location.y;
-		location.y = x;
+		exp = explosion;
+		exp.fire(body.m_world);
 	}
 }
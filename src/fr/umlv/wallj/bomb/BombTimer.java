@@ -0,0 +1,77 @@
+package fr.umlv.wallj.bomb;
+
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import fr.umlv.wallj.game.Sizes;
+
+/**
+ * Schedules the explosions of the bombs during the physics phase. Each bomb is put in a priority queue, 
+ * keyed by the physics tick at which it must explode, so a tick only touches the bombs due to explode, 
+ * and an exploded bomb leaves the queue.
+ * The {@code queue} field is the queue of the bombs which have not exploded yet, each with its deadline.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class BombTimer {
+	private final PriorityQueue<Entry> queue = new PriorityQueue<>((e1, e2) -> Long.compare(e1.deadline, e2.deadline));
+	
+	/**
+	 * A scheduled bomb, with the physics tick at which it explodes. 
+	 * The deadline is kept by the timer, so it can't change while the bomb is in the queue.
+	 */
+	private static final class Entry {
+		private final long deadline;
+		private final Bomb bomb;
+		
+		private Entry(long deadline, Bomb bomb) {
+			this.deadline = deadline;
+			this.bomb = Objects.requireNonNull(bomb);
+		}
+	}
+	
+	/**
+	 * Returns the number of ticks of Sizes.LOOP_TIME before a bomb with the given time left explodes.
+	 * @param timeLeft the time left before the explosion, in seconds.
+	 * @return the number of ticks.
+	 */
+	public static long ticksBefore(double timeLeft) {
+		return (long) Math.ceil(timeLeft * 1000 / Sizes.LOOP_TIME);
+	}
+	
+	/**
+	 * Schedules the given bomb, from its time left, as if the physics phase started at tick 0.
+	 * @param b the bomb to schedule.
+	 */
+	public void schedule(Bomb b) {
+		queue.add(new Entry(ticksBefore(b.getTimeLeft()), b));
+	}
+	
+	/**
+	 * Makes explode all the bombs due to explode at the given tick, and removes them from the queue.
+	 * @param tick the current physics tick.
+	 * @param onExplode the action applied to each bomb after its explosion.
+	 */
+	public void fire(long tick, Consumer<? super Bomb> onExplode) {
+		while (!queue.isEmpty() && queue.peek().deadline <= tick) {
+			Bomb b = queue.poll().bomb;
+			b.explode();
+			onExplode.accept(b);
+		}
+	}
+	
+	/**
+	 * Tells if all the scheduled bombs have exploded.
+	 * @return true if there is no bomb left in the queue.
+	 */
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+	
+	/**
+	 * Removes all the bombs from the queue.
+	 */
+	public void clear() {
+		queue.clear();
+	}
+}
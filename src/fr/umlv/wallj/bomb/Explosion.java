@@ -3,15 +3,17 @@ package fr.umlv.wallj.bomb;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Line2D;
-import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jbox2d.callbacks.RayCastCallback;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.Fixture;
+import org.jbox2d.dynamics.World;
 
 import fr.umlv.wallj.display.Displayable;
+import fr.umlv.wallj.display.ShapeBatch;
 import fr.umlv.wallj.game.Sizes;
 
 /**
@@ -19,22 +21,32 @@ import fr.umlv.wallj.game.Sizes;
  * each going in a different direction.
  * It implements JBox2D's {@code RayCastCallback} interface, thus we can use reportFixture 
  * in the {@code world.rayCast()} method.
- * The {@code Position} field represents the position of the center of the Explosion. 
+ * The {@code (x, y)} fields represent the position of the center of the Explosion. 
  * It's the position of the body of the Bomb, and is the position on the application window.
  * The {@code rayNumber} field is the number of rays fired by the bomb. 
  * This is then the number of {@code rayCast} for each Bomb.
- * The {@code endList} field is the list of all the positions of the end of the rays, 
- * the start being the position of the explosion.
+ * The {@code directions} field contains the unit directions of the rays, as (sin, cos) pairs. 
+ * They only depend on {@code rayNumber}, so they are computed once and shared by all the explosions.
+ * The {@code origin}, {@code end}, {@code force} and {@code line} fields are scratch objects, 
+ * reused for each ray and each frame so the explosion does not allocate once created.
  * @author Séverin Gosset - Denis Biguenet
  */
 public class Explosion implements RayCastCallback, Displayable {
-	private final Vec2 position;
+	private static final ConcurrentHashMap<Integer, float[]> DIRECTIONS = new ConcurrentHashMap<>();
+	
+	private final float x;
+	private final float y;
 	private final int rayNumber;
-	private final ArrayList<Vec2> endList;
+	private final float[] directions;
+	private final Vec2 origin = new Vec2();
+	private final Vec2 end = new Vec2();
+	private final Vec2 force = new Vec2();
+	private final Line2D.Float line = new Line2D.Float();
 	
 	/**
 	 * Create a new explosion, with the given position and number of rays.
-	 * The endList of the explosion is created in order to have rays in circle around the explosion.
+	 * The rays of the explosion are spread in circle around the explosion.
+	 * The position is copied, so the explosion never modifies the given vector.
 	 * @param position the posiotion of the center of the Bomb.
 	 * @param rayNumber the number of rays of the bomb.
 	 */
@@ -43,18 +55,33 @@ public class Explosion implements RayCastCallback, Displayable {
 			throw new IllegalArgumentException("position must be non null !");
 		if (rayNumber <= 0) 
 			throw new IllegalArgumentException("rayNumber must be positive !");
-		this.position = position;
+		this.x = position.x;
+		this.y = position.y;
 		this.rayNumber = rayNumber;
-		this.endList = new ArrayList<>();
-		createEndList();
+		this.directions = DIRECTIONS.computeIfAbsent(rayNumber, Explosion::createDirections);
+	}
+	
+	private static float[] createDirections(int rayNumber) {
+		float[] directions = new float[rayNumber * 2];
+		for(int i = 0; i < rayNumber; i++) {
+			double angle = ((double) i / rayNumber) * 2 * Math.PI;
+			directions[2 * i] = (float)Math.sin(angle);
+			directions[2 * i + 1] = (float)Math.cos(angle);
+		}
+		return directions;
 	}
 	
-	private void createEndList() {
-		float degPerRad = 0.017453f;
-		for(double i = 0; i < rayNumber; i++) {
-			double angle = (i  / rayNumber) * 360 * degPerRad;
-			Vec2 dir = new Vec2((float)Math.sin(angle), (float)Math.cos(angle));
-			endList.add(new Vec2(dir.y * Sizes.EXPLOSION_RADIUS + position.y, dir.x * Sizes.EXPLOSION_RADIUS + position.x));
+	/**
+	 * Fires all the rays of the explosion in the given world.
+	 * The JBox2D coordinates of the bomb are the screen coordinates with the axes swapped, 
+	 * so the rays are cast from {@code (y, x)}.
+	 * @param world the world in which the rays are cast.
+	 */
+	public void fire(World world) {
+		origin.set(y, x);
+		for (int i = 0; i < rayNumber; i++) {
+			end.set(y + directions[2 * i + 1] * Sizes.EXPLOSION_RADIUS, x + directions[2 * i] * Sizes.EXPLOSION_RADIUS);
+			world.raycast(this, origin, end);
 		}
 	}
 	
@@ -70,25 +97,13 @@ public class Explosion implements RayCastCallback, Displayable {
 	 */
 	@Override
 	public float reportFixture(Fixture fixture, Vec2 point, Vec2 normal, float fraction) {
-		if(fixture.getBody().m_type == BodyType.DYNAMIC) {
-			Vec2 force = fixture.getBody().getPosition().sub(point);
-					force.x *= 60 * (1 - fraction) * Sizes.EXPLOSION_RADIUS;
-					force.y *= 60 * (1 - fraction) * Sizes.EXPLOSION_RADIUS;
-			Body b = fixture.getBody();
+		Body b = fixture.getBody();
+		if(b.m_type == BodyType.DYNAMIC) {
+			force.set(b.getPosition()).subLocal(point).mulLocal(60 * (1 - fraction) * Sizes.EXPLOSION_RADIUS);
 			b.applyLinearImpulse(force, point);
-			
-			return 1;
 		}
 		return 1;
 	}
-	
-	/**
-	 * returns the endList of the explosion.
-	 * @return the endlist.
-	 */
-	public ArrayList<Vec2> getEndList() {
-		return endList;
-	}
 
 	/**
 	 * Draws the explosion in the given graphic context. An explosion is represented by {@code rayNumber} 
@@ -97,9 +112,20 @@ public class Explosion implements RayCastCallback, Displayable {
 	 */
 	@Override
 	public void draw(Graphics2D graphics) {
-		for (Vec2 end : endList) {
-			graphics.setColor(Color.ORANGE);
-			graphics.draw(new Line2D.Float(position.x, position.y, end.y, end.x));
+		graphics.setColor(Color.ORANGE);
+		for (int i = 0; i < rayNumber; i++) {
+			line.setLine(x, y, x + directions[2 * i] * Sizes.EXPLOSION_RADIUS, y + directions[2 * i + 1] * Sizes.EXPLOSION_RADIUS);
+			graphics.draw(line);
+		}
+	}
+	
+	/**
+	 * Adds the rays of the explosion to the given batch, so the rays of all the explosions are drawn at once.
+	 * @param rays the batch of the rays.
+	 */
+	public void addTo(ShapeBatch rays) {
+		for (int i = 0; i < rayNumber; i++) {
+			rays.addLine(x, y, x + directions[2 * i] * Sizes.EXPLOSION_RADIUS, y + directions[2 * i + 1] * Sizes.EXPLOSION_RADIUS);
 		}
 	}
 
@@ -0,0 +1,109 @@
+package fr.umlv.wallj.display;
+
+import java.awt.Graphics2D;
+
+/**
+ * The camera through which the board is drawn, so a board larger than the window can be explored.
+ * The game is drawn in its own coordinates, and the camera transforms them into the coordinates of the window :
+ * a point {@code (x, y)} of the game is drawn at {@code ((x - this.x) * zoom, (y - this.y) * zoom)}.
+ * A new camera doesn't move anything, so the board is drawn as without camera.
+ * The {@code (x, y)} fields are the point of the game drawn at the top left corner of the window.
+ * The {@code zoom} field is the scale of the drawing, between {@code MIN_ZOOM} and {@code MAX_ZOOM}.
+ * The {@code version} field is incremented at each move of the camera, so a drawer can tell if its last frame is still valid.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class Camera {
+	public final static float MIN_ZOOM = 0.25f;
+	public final static float MAX_ZOOM = 4f;
+
+	private float x;
+	private float y;
+	private float zoom = 1;
+	private int version;
+
+	/**
+	 * Transforms the given graphics, so the game is drawn through the camera,
+	 * and clips it to the window : the parts of the game outside the window are not drawn.
+	 * The drawers can then get the visible part of the game with {@code graphics.getClipBounds()}.
+	 * @param graphics the graphics of the window.
+	 * @param width the width of the window.
+	 * @param height the height of the window.
+	 */
+	public void apply(Graphics2D graphics, float width, float height) {
+		graphics.clipRect(0, 0, (int) Math.ceil(width), (int) Math.ceil(height));
+		graphics.scale(zoom, zoom);
+		graphics.translate(-x, -y);
+	}
+
+	/**
+	 * Converts an abscissa of the window into an abscissa of the game.
+	 * @param screenX the abscissa in the window.
+	 * @return the abscissa in the game.
+	 */
+	public float toGameX(float screenX) {
+		return screenX / zoom + x;
+	}
+
+	/**
+	 * Converts an ordinate of the window into an ordinate of the game.
+	 * @param screenY the ordinate in the window.
+	 * @return the ordinate in the game.
+	 */
+	public float toGameY(float screenY) {
+		return screenY / zoom + y;
+	}
+
+	/**
+	 * Moves the camera by the given distance, in pixels of the window.
+	 * @param dx the horizontal distance, positive to see what is on the right.
+	 * @param dy the vertical distance, positive to see what is below.
+	 */
+	public void pan(float dx, float dy) {
+		x += dx / zoom;
+		y += dy / zoom;
+		version++;
+	}
+
+	/**
+	 * Multiplies the zoom by the given factor, keeping the point of the window {@code (screenX, screenY)}
+	 * over the same point of the game. The zoom stays between {@code MIN_ZOOM} and {@code MAX_ZOOM}.
+	 * @param factor the factor, greater than 1 to zoom in.
+	 * @param screenX the abscissa of the fixed point, in the window.
+	 * @param screenY the ordinate of the fixed point, in the window.
+	 */
+	public void zoom(float factor, float screenX, float screenY) {
+		if (factor <= 0)
+			throw new IllegalArgumentException("factor must be positive !");
+		float gameX = toGameX(screenX);
+		float gameY = toGameY(screenY);
+		zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+		x = gameX - screenX / zoom;
+		y = gameY - screenY / zoom;
+		version++;
+	}
+
+	/**
+	 * Returns the zoom of the camera.
+	 * @return the zoom.
+	 */
+	public float getZoom() {
+		return zoom;
+	}
+
+	/**
+	 * Returns the number of moves of the camera since its creation.
+	 * @return the version of the camera.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the position and the zoom of the camera.
+	 * @return the String.
+	 */
+	@Override
+	public String toString() {
+		return "(" + x + ", " + y + ") x" + zoom;
+	}
+}
@@ -2,12 +2,10 @@ package fr.umlv.wallj.display;
 
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.FontFormatException;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 import fr.umlv.wallj.game.Board;
 import fr.umlv.wallj.game.Sizes;
@@ -15,6 +13,7 @@ import fr.umlv.wallj.pathfinding.Path;
 import fr.umlv.zen5.ApplicationContext;
 import fr.umlv.zen5.Event;
 import fr.umlv.zen5.Event.Action;
+import fr.umlv.zen5.KeyboardKey;
 import fr.umlv.zen5.ScreenInfo;
 
 /**
@@ -26,13 +25,43 @@ import fr.umlv.zen5.ScreenInfo;
  * It is used to render the window with {@code context.renderFrame()} method.
  * The {@code (xClick, yClick)} fields are the position of the last valid click in the window,
  * converted to match with the Board dimension.
+ * The {@code boardDrawn} field tells if the frame still contains the board as drawn by the last {@code render}, 
+ * so only the changes have to be drawn. The {@code drawnPath} and {@code drawnPathIndex} fields are the path 
+ * drawn by the last {@code render} and its index at that time.
+ * The {@code boardRenderer} and {@code frameRenderer} fields are the drawing functions given to the context, 
+ * built once so rendering a frame doesn't create a new lambda : they draw the {@code renderedPath} 
+ * and the {@code renderedFrame} given to the render in progress.
+ * The {@code FONTS} field is the font manager shared by all the displayers, so the font is loaded once for the whole game.
+ * The {@code camera} field is the camera through which the board is drawn : the keys I, J, K and L move it, 
+ * and P and M zoom in and out. The {@code drawnCameraVersion} field is the version of the camera when the window was last drawn, 
+ * and {@code cameraMoved} tells if the camera moved since the last call to {@code hasCameraMoved}.
+ * The {@code level} field is the level written by the last {@code drawInterface}, written again when the camera moves, 
+ * or -1 if a message was drawn since.
  * @author Sevrin Gosset - Denis Biguenet
  */
-public class Displayer {
+public class Displayer implements EventSource {
+	private static final FontManager FONTS = new FontManager("font/ethnocentric rg.ttf");
+	private static final float PAN_STEP = 5 * Sizes.STEP;
+	private static final float ZOOM_STEP = 1.25f;
+	
 	private final Board b;
 	private final ApplicationContext context;
 	private int xClick;
 	private int yClick;
+	private boolean boardDrawn;
+	private Path drawnPath;
+	private int drawnPathIndex;
+	private Path renderedPath;
+	private Displayable renderedFrame;
+	private final Consumer<Graphics2D> boardRenderer = this::drawBoard;
+	private final Consumer<Graphics2D> frameRenderer = graphics -> {
+		applyCamera(graphics);
+		renderedFrame.draw(graphics);
+	};
+	private final Camera camera = new Camera();
+	private int drawnCameraVersion;
+	private boolean cameraMoved;
+	private int level = -1;
 	
 	/**
 	 * Creates a new displayer, with the given board in the given context.
@@ -45,22 +74,89 @@ public class Displayer {
 	}
 	
 	/**
-	 * Draws the current frame. If path is not null, draws it.
+	 * Draws the current frame. If path is not null, draws it. 
+	 * The frame is kept between two renders, so only what changed since the last render is drawn : 
+	 * the cells changed in the board, and the nodes of the path which appeared, disappeared or changed color.
 	 * @param path the path to draw. If it's null, only the board will be drawn.
 	 */
 	public void render(Path path) {
-		context.renderFrame(graphics -> {
-			b.draw(graphics);
-			if (path != null) {
-				path.draw(graphics);
-			}
-		});
+		renderedPath = path;
+		context.renderFrame(boardRenderer);
+		renderedPath = null;
+	}
+	
+	private void drawBoard(Graphics2D graphics) {
+		applyCamera(graphics);
+		Path path = renderedPath;
+		if (!boardDrawn)
+			b.markAllDirty();
+		else if (path != drawnPath) {
+			if (drawnPath != null)
+				drawnPath.markDirty(b, 0, drawnPath.size());
+			if (path != null)
+				path.markDirty(b, 0, path.size());
+		}
+		else if (path != null)
+			path.markDirty(b, drawnPathIndex, path.getIndex());
+		b.drawChanges(graphics, path);
+		boardDrawn = true;
+		drawnPath = path;
+		drawnPathIndex = path == null ? 0 : path.getIndex();
+	}
+	
+	/**
+	 * Transforms the given graphics with the camera. If the camera moved since the last frame, 
+	 * the window is cleared and the interface written again first, and the board must be fully drawn.
+	 * @param graphics the graphics of the window.
+	 */
+	private void applyCamera(Graphics2D graphics) {
+		ScreenInfo info = context.getScreenInfo();
+		if (camera.getVersion() != drawnCameraVersion) {
+			graphics.setColor(Color.BLACK);
+			graphics.fill(new Rectangle2D.Float(0, 0, info.getWidth(), info.getHeight()));
+			if (level >= 0)
+				drawTexts(graphics, info);
+			boardDrawn = false;
+			drawnCameraVersion = camera.getVersion();
+		}
+		camera.apply(graphics, info.getWidth(), info.getHeight());
+	}
+	
+	/**
+	 * Returns the camera through which the board is drawn.
+	 * @return the camera.
+	 */
+	public Camera getCamera() {
+		return camera;
+	}
+	
+	/**
+	 * Tells if the camera moved since the last call, so the board must be drawn again.
+	 * @return true if the camera moved.
+	 */
+	public boolean hasCameraMoved() {
+		boolean moved = cameraMoved;
+		cameraMoved = false;
+		return moved;
+	}
+	
+	/**
+	 * Draws the current frame from the given displayable instead of the board. 
+	 * It is used to draw a snapshot of the board while another thread modifies it.
+	 * @param displayable the displayable to draw.
+	 */
+	public void renderFrame(Displayable displayable) {
+		renderedFrame = Objects.requireNonNull(displayable);
+		boardDrawn = false;
+		context.renderFrame(frameRenderer);
+		renderedFrame = null;
 	}
 	
 	/**
 	 * Returns the abscissa of the last valid click (i.e. inside the board)
 	 * @return the abscissa of the click 
 	 */
+	@Override
 	public int getXClick() {
 		return xClick;
 	}
@@ -69,6 +165,7 @@ public class Displayer {
 	 * Returns the ordinate of the last valid click (i.e. inside the board)
 	 * @return the ordinate of the click 
 	 */
+	@Override
 	public int getYClick() {
 		return yClick;
 	}
@@ -93,22 +190,42 @@ public class Displayer {
 	 * Returns an event from the user. If there is no event, do nothing.
 	 * If the users pressed a keyboard button, exits the application, 
 	 * and if the user clicked inside the board, fills the xClick and yClick fields with the coordinates of the click,
-	 * then convert them into the board's corresponding case coordinate.
+	 * then convert them into the board's corresponding case coordinate, through the camera.
+	 * The keys moving the camera are handled here, and give no event to the game.
 	 * @return -2 if there is no event or a false event, -1 if the event is a click inside of the board,
 	 * or the value of the pressed key.
 	 */
+	@Override
 	public int waitEvent() {
-		Event event = context.pollEvent();
+		return handleEvent(context.pollEvent());
+	}
+	
+	/**
+	 * Returns an event from the user, waiting at most the given time for it. 
+	 * The events are handled like in {@code waitEvent()}, but the thread sleeps until an event comes, 
+	 * so an idle game doesn't use the processor.
+	 * @param timeout the maximum time to wait, in milliseconds.
+	 * @return -2 if there is no event or a false event, -1 if the event is a click inside of the board,
+	 * or the value of the pressed key.
+	 */
+	@Override
+	public int waitEvent(long timeout) {
+		return handleEvent(context.pollOrWaitEvent(timeout));
+	}
+	
+	private int handleEvent(Event event) {
         if (event == null) {
             return -2;
         }
         Action action = event.getAction();
         if (action == Action.KEY_PRESSED) {
+        	if (moveCamera(event.getKey()))
+        		return -2;
             return event.getKey().ordinal();
         }
         else if (action == Action.POINTER_UP) {
-        	xClick = (int)event.getLocation().x;
-        	yClick = (int)event.getLocation().y;
+        	xClick = (int)Math.floor(camera.toGameX(event.getLocation().x));
+        	yClick = (int)Math.floor(camera.toGameY(event.getLocation().y));
         	if (xClick <= Sizes.LEFT_MARGIN || xClick >= Sizes.LEFT_MARGIN + getPixelBoardWidth()) {
         		return -2;
         	}
@@ -122,18 +239,29 @@ public class Displayer {
         return -2;
 	}
 	
-	private Font loadFont(Graphics2D graphics) {
-		Font font;
-		try {
-			FileInputStream stream = new FileInputStream("font/ethnocentric rg.ttf");
-			font = Font.createFont(Font.TRUETYPE_FONT, stream).deriveFont(Font.PLAIN, Sizes.FONT_SIZE);
-			stream.close();
-			graphics.setFont(font);
-		} catch (FontFormatException | IOException e) {
-			System.err.println(e.getMessage());
-			System.err.println("Font ethnocentric rg.ttf not found in font directory !");
-			font = new Font("arial", Font.PLAIN, Sizes.FONT_SIZE);
+	/**
+	 * Moves the camera if the given key is one of the camera keys.
+	 * @param key the pressed key.
+	 * @return true if the key moved the camera.
+	 */
+	private boolean moveCamera(KeyboardKey key) {
+		ScreenInfo info = context.getScreenInfo();
+		switch (key) {
+			case I : camera.pan(0, -PAN_STEP); break;
+			case K : camera.pan(0, PAN_STEP); break;
+			case J : camera.pan(-PAN_STEP, 0); break;
+			case L : camera.pan(PAN_STEP, 0); break;
+			case P : camera.zoom(ZOOM_STEP, info.getWidth() / 2, info.getHeight() / 2); break;
+			case M : camera.zoom(1 / ZOOM_STEP, info.getWidth() / 2, info.getHeight() / 2); break;
+			default : return false;
 		}
+		cameraMoved = true;
+		return true;
+	}
+	
+	private Font setFont(Graphics2D graphics) {
+		Font font = FONTS.font(Sizes.FONT_SIZE);
+		graphics.setFont(font);
 		return font;
 	}
 	
@@ -143,14 +271,16 @@ public class Displayer {
 	 * @param messages the messages to draw.
 	 */
 	public void drawMessage(String[] messages) {
+		boardDrawn = false;
+		level = -1;
 		context.renderFrame(graphics -> {
 			ScreenInfo info = context.getScreenInfo();
-			Font font = loadFont(graphics);
+			Font font = setFont(graphics);
 			graphics.setColor(Color.BLACK);
 			graphics.fill(new Rectangle2D.Float(0, 0, info.getWidth(), info.getHeight()));
 			for (int i = 0; i < messages.length; i++) {
 				graphics.setColor(Color.WHITE);
-				float x = (info.getWidth() - graphics.getFontMetrics(font).stringWidth(messages[i]))/2;
+				float x = (info.getWidth() - FONTS.stringWidth(graphics, font, messages[i]))/2;
 				float y = (info.getHeight() + (messages.length + 2 * i) * (Sizes.FONT_SIZE * 1.25f))/2;
 				graphics.drawString(messages[i], x, y);
 			}
@@ -162,20 +292,31 @@ public class Displayer {
 	 * @param level the current level to display.
 	 */
 	public void drawInterface(int level) {
+		boardDrawn = false;
+		this.level = level;
 		context.renderFrame(graphics -> {
 			ScreenInfo info = context.getScreenInfo();
-			Font font = loadFont(graphics);
 			graphics.setColor(Color.BLACK);
 			graphics.fill(new Rectangle2D.Float(0, 0, info.getWidth(), info.getHeight()));
-			graphics.setColor(Color.WHITE);
-			float x = (info.getWidth() - graphics.getFontMetrics(font).stringWidth("WALL-J"))/2;
-			float y = (Sizes.TOP_MARGIN - Sizes.FONT_SIZE)/2;
-			graphics.drawString("WALL-J", x, y);
-			
-			String str = "Level " + level;
-			x = (info.getWidth() - graphics.getFontMetrics(font).stringWidth(str))/2;
-			y = Sizes.TOP_MARGIN + getPixelBoardLength() + (3 * Sizes.FONT_SIZE / 2);
-			graphics.drawString(str, x, y);
+			drawTexts(graphics, info);
 		});
 	}
+	
+	/**
+	 * Writes the texts of the interface : the name of the game, and the current level.
+	 * @param graphics the graphics of the window.
+	 * @param info the size of the window.
+	 */
+	private void drawTexts(Graphics2D graphics, ScreenInfo info) {
+		Font font = setFont(graphics);
+		graphics.setColor(Color.WHITE);
+		float x = (info.getWidth() - FONTS.stringWidth(graphics, font, "WALL-J"))/2;
+		float y = (Sizes.TOP_MARGIN - Sizes.FONT_SIZE)/2;
+		graphics.drawString("WALL-J", x, y);
+		
+		String str = "Level " + level;
+		x = (info.getWidth() - FONTS.stringWidth(graphics, font, str))/2;
+		y = Sizes.TOP_MARGIN + getPixelBoardLength() + (3 * Sizes.FONT_SIZE / 2);
+		graphics.drawString(str, x, y);
+	}
 }
@@ -0,0 +1,37 @@
+package fr.umlv.wallj.display;
+
+/**
+ * An EventSource gives the events of the user to the game : the pressed keys and the clicks inside the board.
+ * It is implemented by the Displayer, which reads the real events of the window, 
+ * but also by the objects which record or replay a session.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public interface EventSource {
+	/**
+	 * Returns the next event, if there is one.
+	 * @return -2 if there is no event or a false event, -1 if the event is a click inside of the board,
+	 * or the value of the pressed key.
+	 */
+	public abstract int waitEvent();
+	
+	/**
+	 * Returns the next event, waiting at most the given time for it, so the game doesn't use the processor while it waits.
+	 * A source which doesn't wait for the user may return at once.
+	 * @param timeout the maximum time to wait, in milliseconds.
+	 * @return -2 if there is no event or a false event, -1 if the event is a click inside of the board,
+	 * or the value of the pressed key.
+	 */
+	public abstract int waitEvent(long timeout);
+	
+	/**
+	 * Returns the abscissa of the last valid click (i.e. inside the board), converted to the board's coordinates.
+	 * @return the abscissa of the click
+	 */
+	public abstract int getXClick();
+	
+	/**
+	 * Returns the ordinate of the last valid click (i.e. inside the board), converted to the board's coordinates.
+	 * @return the ordinate of the click
+	 */
+	public abstract int getYClick();
+}
@@ -0,0 +1,73 @@
+package fr.umlv.wallj.display;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.Graphics2D;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Loads the font of the interface once, and keeps the fonts derived from it and the widths of the strings drawn with them.
+ * So drawing a message or the interface never reads the font file again.
+ * If the font file can't be read, the manager falls back to Arial, and the error is only printed once.
+ * The {@code file} field is the path of the font file.
+ * The {@code base} field is the font loaded from the file, null until the first font is asked.
+ * The {@code fonts} field contains the derived fonts, by size, and {@code widths} the width of the strings, by font.
+ * The methods are synchronized, as a font manager is shared by all the displayers.
+ * @author Severin Gosset - Denis Biguenet
+ */
+final class FontManager {
+	private final String file;
+	private Font base;
+	private final HashMap<Float, Font> fonts = new HashMap<>();
+	private final HashMap<Font, HashMap<String, Integer>> widths = new HashMap<>();
+
+	/**
+	 * Creates a new font manager for the given font file. The file is read when the first font is asked.
+	 * @param file the path of the font file.
+	 */
+	FontManager(String file) {
+		this.file = Objects.requireNonNull(file);
+	}
+
+	/**
+	 * Returns the font of the file, or Arial if it can't be read. The file is read the first time only.
+	 * @return the base font.
+	 */
+	private Font base() {
+		if (base == null) {
+			try (FileInputStream stream = new FileInputStream(file)) {
+				base = Font.createFont(Font.TRUETYPE_FONT, stream);
+			} catch (FontFormatException | IOException e) {
+				System.err.println(e.getMessage());
+				System.err.println("Font " + file + " not found, Arial is used instead !");
+				base = new Font("arial", Font.PLAIN, 1);
+			}
+		}
+		return base;
+	}
+
+	/**
+	 * Returns the font of the file in the given size. The font is derived the first time only.
+	 * @param size the size of the font.
+	 * @return the font.
+	 */
+	synchronized Font font(float size) {
+		return fonts.computeIfAbsent(size, s -> base().deriveFont(Font.PLAIN, s));
+	}
+
+	/**
+	 * Returns the width of the given string drawn with the given font. The width is measured the first time only,
+	 * with the metrics of the given graphics.
+	 * @param graphics the graphics in which the string is drawn.
+	 * @param font the font of the string.
+	 * @param str the string.
+	 * @return the width of the string, in pixels.
+	 */
+	synchronized int stringWidth(Graphics2D graphics, Font font, String str) {
+		return widths.computeIfAbsent(font, f -> new HashMap<>())
+				.computeIfAbsent(str, s -> graphics.getFontMetrics(font).stringWidth(s));
+	}
+}
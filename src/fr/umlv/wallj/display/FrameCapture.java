@@ -0,0 +1,212 @@
+package fr.umlv.wallj.display;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Draws frames offscreen, without window, and writes them as PNG files or as a raw stream of frames.
+ * It allows to capture a game running without display, to compare its frames or to make a video of it.
+ * The frames are drawn in images of the same size, reused from frame to frame : a drawn image is given to the encoder thread,
+ * which writes it and gives it back, so the writing doesn't slow down the game.
+ * The game only waits when all the images are waiting to be written.
+ * The PNG files are named {@code frame000000.png, frame000001.png, ...} in the directory of the capture.
+ * The raw stream has no header : it is the sequence of the frames, each one being {@code width * height} pixels
+ * of 3 bytes, red, green and blue, line after line. For example, {@code ffmpeg -f rawvideo -pix_fmt rgb24 -s 1280x720 -i <file>} reads it.
+ * The {@code width} and {@code height} fields are the size of the frames, in pixels.
+ * The {@code directory} field is the directory of the PNG files, and {@code stream} the raw stream : one of them is null.
+ * The {@code free} field contains the images ready to be drawn, and {@code drawn} the images waiting to be written.
+ * The {@code encoder} field is the thread writing the frames, and {@code error} the exception which stopped it, if any.
+ * The {@code captured} field is the number of captured frames, and {@code stalls} the number of times
+ * the game waited for a free image.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class FrameCapture implements AutoCloseable {
+	private final static int IMAGES = 3;
+	private final static BufferedImage END = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+	private final int width;
+	private final int height;
+	private final Path directory;
+	private final OutputStream stream;
+	private final ArrayBlockingQueue<BufferedImage> free = new ArrayBlockingQueue<>(IMAGES);
+	private final ArrayBlockingQueue<BufferedImage> drawn = new ArrayBlockingQueue<>(IMAGES + 1);
+	private final Thread encoder;
+	private volatile IOException error;
+	private long captured;
+	private long stalls;
+
+	private FrameCapture(int width, int height, Path directory, OutputStream stream) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("the size of the frames must be positive !");
+		this.width = width;
+		this.height = height;
+		this.directory = directory;
+		this.stream = stream;
+		for (int i = 0; i < IMAGES; i++) {
+			free.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+		}
+		encoder = new Thread(this::encode, "frame-encoder");
+		encoder.start();
+	}
+
+	/**
+	 * Creates a capture writing each frame in a PNG file of the given directory. The directory is created if needed.
+	 * @param directory the directory of the files.
+	 * @param width the width of the frames.
+	 * @param height the height of the frames.
+	 * @return the capture.
+	 * @throws IOException if the directory can't be created.
+	 */
+	public static FrameCapture toPng(Path directory, int width, int height) throws IOException {
+		Files.createDirectories(directory);
+		return new FrameCapture(width, height, directory, null);
+	}
+
+	/**
+	 * Creates a capture writing the frames in the given stream, as raw RGB pixels. The stream is closed with the capture.
+	 * @param stream the stream.
+	 * @param width the width of the frames.
+	 * @param height the height of the frames.
+	 * @return the capture.
+	 */
+	public static FrameCapture toRaw(OutputStream stream, int width, int height) {
+		return new FrameCapture(width, height, null, new BufferedOutputStream(Objects.requireNonNull(stream)));
+	}
+
+	/**
+	 * Draws a new frame with the given displayables, the second one over the first one, on a black background,
+	 * and gives it to the encoder thread.
+	 * @param displayable the displayable to draw.
+	 * @param overlay the displayable to draw over it, or null if there is none.
+	 * @throws UncheckedIOException if a previous frame couldn't be written.
+	 */
+	public void capture(Displayable displayable, Displayable overlay) {
+		Objects.requireNonNull(displayable);
+		if (error != null)
+			throw new UncheckedIOException(error);
+		BufferedImage image = free.poll();
+		if (image == null) {
+			stalls++;
+			image = take(free);
+		}
+		Graphics2D graphics = image.createGraphics();
+		try {
+			graphics.setColor(Color.BLACK);
+			graphics.fillRect(0, 0, width, height);
+			displayable.draw(graphics);
+			if (overlay != null)
+				overlay.draw(graphics);
+		} finally {
+			graphics.dispose();
+		}
+		captured++;
+		drawn.add(image);
+	}
+
+	/**
+	 * Draws a new frame with the given displayable, on a black background, and gives it to the encoder thread.
+	 * @param displayable the displayable to draw.
+	 * @throws UncheckedIOException if a previous frame couldn't be written.
+	 */
+	public void capture(Displayable displayable) {
+		capture(displayable, null);
+	}
+
+	private static BufferedImage take(ArrayBlockingQueue<BufferedImage> queue) {
+		try {
+			return queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting a frame", e);
+		}
+	}
+
+	/**
+	 * The loop of the encoder thread : writes the drawn images until the end of the capture.
+	 * After an error, the images are given back without being written, so the game never waits forever.
+	 */
+	private void encode() {
+		byte[] pixels = stream == null ? null : new byte[width * height * 3];
+		long index = 0;
+		BufferedImage image;
+		while ((image = take(drawn)) != END) {
+			try {
+				if (error == null)
+					write(image, index++, pixels);
+			} catch (IOException e) {
+				error = e;
+			}
+			free.add(image);
+		}
+	}
+
+	private void write(BufferedImage image, long index, byte[] pixels) throws IOException {
+		if (stream == null) {
+			ImageIO.write(image, "png", directory.resolve(String.format("frame%06d.png", index)).toFile());
+			return;
+		}
+		int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		for (int i = 0, j = 0; i < data.length; i++) {
+			pixels[j++] = (byte) (data[i] >> 16);
+			pixels[j++] = (byte) (data[i] >> 8);
+			pixels[j++] = (byte) data[i];
+		}
+		stream.write(pixels);
+	}
+
+	/**
+	 * Waits for all the captured frames to be written, then stops the encoder thread and closes the stream, if any.
+	 * @throws IOException if a frame couldn't be written, or the stream can't be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		drawn.add(END);
+		try {
+			encoder.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting the encoder", e);
+		}
+		if (stream != null)
+			stream.close();
+		if (error != null)
+			throw error;
+	}
+
+	/**
+	 * Returns the number of captured frames.
+	 * @return the number of frames.
+	 */
+	public long getCaptured() {
+		return captured;
+	}
+
+	/**
+	 * Returns the number of times a capture waited for the encoder thread, because all the images were waiting to be written.
+	 * @return the number of stalls.
+	 */
+	public long getStalls() {
+		return stalls;
+	}
+
+	/**
+	 * Returns the counts of the capture : the captured frames and the stalls.
+	 * @return the String.
+	 */
+	@Override
+	public String toString() {
+		return captured + " frames captured (" + width + "x" + height + "), " + stalls + " waits for the encoder";
+	}
+}
@@ -0,0 +1,136 @@
+package fr.umlv.wallj.display;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+
+import fr.umlv.wallj.pathfinding.Path;
+
+/**
+ * Coalesces the render requests of the game, so the board is drawn at most once per refresh of the screen.
+ * A request only marks the frame as dirty, with the path to draw : the frame is drawn by {@code present},
+ * and only if the last frame was drawn at least one refresh interval ago. The requests made while the frame
+ * is already dirty are suppressed, as the next frame will draw the same board anyway.
+ * The {@code displayer} field is the displayer drawing the frames, null if there is none.
+ * The {@code interval} field is the refresh interval of the screen, in nanoseconds.
+ * The {@code dirty} field tells if a frame was requested since the last one, and {@code path} is the path to draw with it.
+ * The {@code lastPresent} field is the time of the last drawn frame.
+ * The {@code presented} and {@code suppressed} fields count the drawn frames and the suppressed requests.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class RenderScheduler {
+	private final static int DEFAULT_REFRESH_RATE = 60;
+
+	private Displayer displayer;
+	private final long interval;
+	private boolean dirty;
+	private Path path;
+	private long lastPresent;
+	private long presented;
+	private long suppressed;
+
+	/**
+	 * Creates a new scheduler, drawing the frames at most once per the given interval.
+	 * @param interval the minimum time between two frames, in nanoseconds.
+	 */
+	public RenderScheduler(long interval) {
+		if (interval < 0)
+			throw new IllegalArgumentException("interval must be positive !");
+		this.interval = interval;
+		lastPresent = System.nanoTime() - interval;
+	}
+
+	/**
+	 * Creates a new scheduler, drawing the frames at most once per refresh of the screen.
+	 */
+	public RenderScheduler() {
+		this(1000000000L / refreshRate());
+	}
+
+	/**
+	 * Returns the refresh rate of the screen, or 60 Hz if it's unknown.
+	 * @return the refresh rate, in Hz.
+	 */
+	private static int refreshRate() {
+		if (GraphicsEnvironment.isHeadless())
+			return DEFAULT_REFRESH_RATE;
+		int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+		return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : rate;
+	}
+
+	/**
+	 * Sets the displayer drawing the frames. The pending request, if any, is forgotten.
+	 * @param displayer the displayer, or null if there is none.
+	 */
+	public void setDisplayer(Displayer displayer) {
+		this.displayer = displayer;
+		dirty = false;
+		path = null;
+	}
+
+	/**
+	 * Requests a new frame with the given path. Nothing is drawn until {@code present} is called.
+	 * @param path the path to draw. If it's null, only the board will be drawn.
+	 */
+	public void request(Path path) {
+		if (displayer == null)
+			return;
+		if (dirty)
+			suppressed++;
+		dirty = true;
+		this.path = path;
+	}
+
+	/**
+	 * Draws the requested frame, if there is one and the last frame was drawn at least one refresh interval ago.
+	 * Otherwise, the request stays pending until the next call.
+	 * @return true if a frame was drawn.
+	 */
+	public boolean present() {
+		if (!dirty)
+			return false;
+		long now = System.nanoTime();
+		if (now - lastPresent < interval)
+			return false;
+		dirty = false;
+		lastPresent = now;
+		presented++;
+		displayer.render(path);
+		return true;
+	}
+
+	/**
+	 * Returns the time left before the requested frame can be drawn, so the game can wait for the events until then.
+	 * @return the time left, in milliseconds, 0 if the frame can be drawn now, or -1 if no frame was requested.
+	 */
+	public long timeToPresent() {
+		if (!dirty)
+			return -1;
+		long left = interval - (System.nanoTime() - lastPresent);
+		return left <= 0 ? 0 : (left + 999999) / 1000000;
+	}
+	
+	/**
+	 * Returns the number of frames drawn.
+	 * @return the number of frames.
+	 */
+	public long getPresented() {
+		return presented;
+	}
+
+	/**
+	 * Returns the number of suppressed render requests.
+	 * @return the number of suppressed requests.
+	 */
+	public long getSuppressed() {
+		return suppressed;
+	}
+
+	/**
+	 * Returns the counts of the scheduler : the drawn frames and the suppressed requests.
+	 * @return the String.
+	 */
+	@Override
+	public String toString() {
+		return presented + " frames drawn, " + suppressed + " redundant renders suppressed";
+	}
+}
@@ -0,0 +1,107 @@
+package fr.umlv.wallj.display;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.util.Objects;
+
+/**
+ * Collects the shapes of one color drawn in a frame, so they are all filled or stroked at once.
+ * Drawing thousands of garbages one by one costs a {@code fill} each : collected in a batch, they cost one.
+ * The batch is emptied after each drawing, and its path keeps its arrays, so it can be reused from frame to frame without allocating.
+ * The {@code color} field is the color of the shapes, and {@code path} the path containing them.
+ * The {@code count} field is the number of shapes collected since the last drawing.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class ShapeBatch {
+	private final Color color;
+	private final Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, 1024);
+	private int count;
+
+	/**
+	 * Creates a new empty batch of the given color.
+	 * @param color the color of the shapes.
+	 */
+	public ShapeBatch(Color color) {
+		this.color = Objects.requireNonNull(color);
+	}
+
+	/**
+	 * Adds a rectangle to the batch.
+	 * @param x the abscissa of the top left corner.
+	 * @param y the ordinate of the top left corner.
+	 * @param width the width of the rectangle.
+	 * @param height the height of the rectangle.
+	 */
+	public void addRect(float x, float y, float width, float height) {
+		path.moveTo(x, y);
+		path.lineTo(x + width, y);
+		path.lineTo(x + width, y + height);
+		path.lineTo(x, y + height);
+		path.closePath();
+		count++;
+	}
+
+	/**
+	 * Adds a line to the batch. The lines are only drawn by {@code stroke}.
+	 * @param x1 the abscissa of the start of the line.
+	 * @param y1 the ordinate of the start of the line.
+	 * @param x2 the abscissa of the end of the line.
+	 * @param y2 the ordinate of the end of the line.
+	 */
+	public void addLine(float x1, float y1, float x2, float y2) {
+		path.moveTo(x1, y1);
+		path.lineTo(x2, y2);
+		count++;
+	}
+
+	/**
+	 * Adds a shape to the batch.
+	 * @param shape the shape.
+	 */
+	public void add(Shape shape) {
+		path.append(shape, false);
+		count++;
+	}
+
+	/**
+	 * Returns the number of shapes collected since the last drawing.
+	 * @return the number of shapes.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Fills all the collected shapes at once, in the color of the batch, and empties the batch.
+	 * @param graphics the graphics in which the shapes must be drawn.
+	 */
+	public void fill(Graphics2D graphics) {
+		if (count > 0) {
+			graphics.setColor(color);
+			graphics.fill(path);
+		}
+		clear();
+	}
+
+	/**
+	 * Strokes all the collected shapes at once, in the color of the batch, and empties the batch.
+	 * @param graphics the graphics in which the shapes must be drawn.
+	 */
+	public void stroke(Graphics2D graphics) {
+		if (count > 0) {
+			graphics.setColor(color);
+			graphics.draw(path);
+		}
+		clear();
+	}
+
+	/**
+	 * Empties the batch without drawing it.
+	 */
+	public void clear() {
+		path.reset();
+		count = 0;
+	}
+}
@@ -1,57 +1,219 @@
 package fr.umlv.wallj.game;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
-import java.io.BufferedReader;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.function.Predicate;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.World;
 
 import fr.umlv.wallj.bomb.Bomb;
+import fr.umlv.wallj.bomb.BombTimer;
 import fr.umlv.wallj.display.Displayable;
+import fr.umlv.wallj.display.ShapeBatch;
+import fr.umlv.wallj.pathfinding.Path;
 
 /**
  * A board represents a whole level of a game. It contains all the info about the current level :\n
  * The {@code player} field reprensents the player, with its position.
  * The {@code bombLeft} field is the number of remaining bomb which the player can land.
- * The {@code world} is the JBox2D world which manage all th physic of the level.
+ * The {@code worlds} field contains the JBox2D worlds which manage all th physic of the level : 
+ * only one world, or one world per region of the level when the physics is sharded.
  * The {@code grid} field is the grid of all the walls, loaded from the level.txt file.
  * The {@code width/length} fields are the dimension of the level.
- * The {@code bombMap} field is the map containing all the Bomb. 
- * It is reprensresented by a HashMap because the order does not matter, and we want a quick access to the bomb. 
- * That's also why the Key of the map is a Vec2, in order to represents the coordinates of the bomb, 
- * thus we can quickly have access to the bomb in a {@code (x, y)} given position.
- * The {@code garbageList} field is the list of all the garbage of the level.
+ * The {@code bombs} field is the index containing all the Bomb, keyed by the id of their cell.
+ * We want a quick access to the bomb in a {@code (x, y)} given position, and a quick iteration over all the bombs.
+ * The {@code garbageMap} field contains all the garbage of the level, indexed by their body, 
+ * so a garbage can be removed quickly when its body is destroyed.
+ * The {@code debris} field is the solver of the debris, the small garbages without body.
+ * The {@code garbageGrid} field is a spatial hash of the garbages, rebuilt after each step of the world.
+ * The {@code bombTimer} field schedules the explosions of the bombs during the physics phase, 
+ * and {@code physicsTick} is the number of physics ticks since the start of the phase.
+ * The {@code stepGovernor} field chooses the iterations and the time step of each step of the worlds.
+ * The {@code quietSteps} field is the number of consecutive steps during which nothing moved, 
+ * used to detect that the world has settled. The {@code speedCheck} consumer sets {@code moving} 
+ * when a garbage is faster than Sizes.SETTLE_VELOCITY.
+ * The {@code blaster} field is the action run when a bomb explodes. 
+ * Like {@code speedCheck}, it is created once, so a physics tick doesn't allocate.
+ * The {@code staticLayer} field is the image of the walls, the trashcans and the empty cells, drawn once per level. 
+ * It is null until the board is drawn the first time, and stays null for the boards larger than {@code MAX_LAYER_SIZE} pixels : 
+ * their cells are drawn at each frame instead, as the image would not fit in memory.
+ * The {@code visible} field is the part of the board visible in the graphics of the current drawing, in pixels of the game : 
+ * only the cells, the garbages, the debris and the bombs intersecting it are drawn.
+ * The visible garbages are found with {@code garbageGrid}, and added by {@code garbageCollector} to the {@code greens} batch, 
+ * with the debris, so they are all filled at once. Likewise, the circles of the bombs are collected in {@code bombBodies}
+ * and the rays of the explosions in {@code rays}.
+ * The {@code dirtyCells} field contains the ids of the cells which changed since the last {@code drawChanges}, 
+ * and {@code fullyDirty} tells if the whole board must be drawn again. 
+ * The {@code drawnPlayerX, drawnPlayerY} fields are the drawn position of the player when it was last drawn, in cells : 
+ * a walking player is drawn between two cells.
+ * Only the planning phase is drawn by cells : the {@code planning} field is false during the physics phase.
+ * The {@code checkpoint} field is the state of the level at the start of the physics phase, 
+ * used to replay the level with the same bombs without rebuilding it. It is null until the first physics phase.
  * @author odomar
  *
  */
 public class Board implements Displayable{
+	private final static int MAX_LAYER_SIZE = 4096;
+	
 	private Player player;
 	private int bombLeft;
-	private final World world;
+	private final WorldShards worlds;
 	private final DisplayableCell[][] grid;
 	private final int width;
 	private final int length;
-	private final HashMap<Vec2, Bomb> bombMap;
-	private final ArrayList<DisplayableCell> garbageList;
+	private final BombIndex bombs;
+	private final LinkedHashMap<Body, DisplayableCell> garbageMap;
+	private final DebrisSolver debris;
+	private final GarbageGrid garbageGrid;
+	private final BombTimer bombTimer;
+	private long physicsTick;
+	private StepGovernor stepGovernor;
+	private int quietSteps;
+	private boolean moving;
+	private final Consumer<Body> speedCheck = body -> {
+		if (body.isAwake() && body.getLinearVelocity().lengthSquared() > Sizes.SETTLE_VELOCITY * Sizes.SETTLE_VELOCITY)
+			moving = true;
+	};
+	private final Consumer<Bomb> blaster = this::blast;
+	private Checkpoint checkpoint;
+	private BufferedImage staticLayer;
+	private final Rectangle visible = new Rectangle();
+	private final ShapeBatch greens = new ShapeBatch(Color.GREEN);
+	private final ShapeBatch bombBodies = new ShapeBatch(Color.ORANGE);
+	private final ShapeBatch rays = new ShapeBatch(Color.ORANGE);
+	private final Consumer<Garbage> garbageCollector = garbage -> {
+		Vec2 position = garbage.getBody().getPosition();
+		greens.addRect(position.y - Sizes.STEP / 2, position.x - Sizes.STEP / 2, Sizes.STEP, Sizes.STEP);
+	};
+	private final BitSet dirtyCells;
+	private boolean fullyDirty;
+	private float drawnPlayerX;
+	private float drawnPlayerY;
+	private boolean planning;
 	
-	private Board(World world, int length, int width, DisplayableCell[][] grid, ArrayList<DisplayableCell> garbageList) {
+	/**
+	 * The state of a level at the start of the physics phase : the grid, the bombs with their time left, 
+	 * the number of remaining bombs, the position of the player, and the transform and velocity of each garbage.
+	 * The bodies are not copied : the destroyed garbages are only deactivated, so they can be restored in place.
+	 */
+	private static final class Checkpoint {
+		private static final int GARBAGE_STATE = 6;
+		
+		private final DisplayableCell[][] grid;
+		private final Bomb[] bombs;
+		private final int[] bombCells;
+		private final double[] timeLeft;
+		private final int bombLeft;
+		private final int playerX;
+		private final int playerY;
+		private final DisplayableCell[] garbages;
+		private final float[] garbageStates;
+		private final DebrisSolver debris;
+		
+		private Checkpoint(Board board) {
+			grid = new DisplayableCell[board.length][];
+			for (int i = 0; i < board.length; i++) {
+				grid[i] = board.grid[i].clone();
+			}
+			bombs = new Bomb[board.bombs.size()];
+			bombCells = new int[bombs.length];
+			timeLeft = new double[bombs.length];
+			for (int i = 0; i < bombs.length; i++) {
+				bombs[i] = board.bombs.bomb(i);
+				bombCells[i] = board.bombs.cell(i);
+				timeLeft[i] = bombs[i].getTimeLeft();
+			}
+			bombLeft = board.bombLeft;
+			playerX = board.player.getX();
+			playerY = board.player.getY();
+			debris = board.debris.copy();
+			garbages = board.garbageMap.values().toArray(new DisplayableCell[0]);
+			garbageStates = new float[garbages.length * GARBAGE_STATE];
+			for (int i = 0; i < garbages.length; i++) {
+				Body body = garbages[i].getBody();
+				int j = i * GARBAGE_STATE;
+				garbageStates[j] = body.getPosition().x;
+				garbageStates[j + 1] = body.getPosition().y;
+				garbageStates[j + 2] = body.getAngle();
+				garbageStates[j + 3] = body.getLinearVelocity().x;
+				garbageStates[j + 4] = body.getLinearVelocity().y;
+				garbageStates[j + 5] = body.getAngularVelocity();
+			}
+		}
+		
+		private void restore(Board board) {
+			for (int i = 0; i < board.length; i++) {
+				System.arraycopy(grid[i], 0, board.grid[i], 0, board.width);
+			}
+			for (int i = 0; i < board.bombs.size(); i++) {
+				board.bombs.bomb(i).setActive(false);
+			}
+			board.bombs.clear();
+			for (int i = 0; i < bombs.length; i++) {
+				bombs[i].reset(timeLeft[i]);
+				board.bombs.put(bombCells[i], bombs[i]);
+			}
+			board.bombLeft = bombLeft;
+			board.player.setPos(playerX, playerY);
+			board.worlds.clearDestroyed();
+			board.garbageMap.clear();
+			Vec2 vec = new Vec2();
+			for (int i = 0; i < garbages.length; i++) {
+				Body body = garbages[i].getBody();
+				int j = i * GARBAGE_STATE;
+				body.setUserData(CollisionCategory.GARBAGE);
+				body.setActive(true);
+				body.setTransform(vec.set(garbageStates[j], garbageStates[j + 1]), garbageStates[j + 2]);
+				body.setLinearVelocity(vec.set(garbageStates[j + 3], garbageStates[j + 4]));
+				body.setAngularVelocity(garbageStates[j + 5]);
+				body.setAwake(true);
+				board.garbageMap.put(body, garbages[i]);
+			}
+			board.debris.restore(debris);
+			board.garbageGrid.update(board.garbageMap.values());
+			board.quietSteps = 0;
+			board.physicsTick = 0;
+			board.stepGovernor.restart();
+			board.planning = true;
+			board.fullyDirty = true;
+			board.bombTimer.clear();
+		}
+	}
+	
+	private Board(WorldShards worlds, int length, int width, DisplayableCell[][] grid, ArrayList<DisplayableCell> garbageList, DebrisSolver debris) {
 		player = new Player(-1, -1);
 		bombLeft = 3;
-		this.world = world; 
+		this.worlds = worlds; 
 		this.width = width;
 		this.length = length;
 		this.grid = grid;
-		this.garbageList = garbageList;
-		bombMap =  new HashMap<>();
+		this.debris = debris;
+		this.garbageMap = new LinkedHashMap<>();
+		for (DisplayableCell garbage : garbageList) {
+			garbageMap.put(garbage.getBody(), garbage);
+		}
+		garbageGrid = new GarbageGrid();
+		garbageGrid.update(garbageMap.values());
+		bombs = new BombIndex(length * width);
+		bombTimer = new BombTimer();
+		stepGovernor = new StepGovernor(0);
+		dirtyCells = new BitSet(length * width);
+		fullyDirty = true;
+		planning = true;
 	}
 	
 	/**
@@ -62,41 +224,91 @@ public class Board implements Displayable{
 	 * @throws IOException when the required level.txt is not found, or another IOException happens.
 	 */
 	public static Board initializeBoard(int level, World world) throws IOException {
+		return initializeBoard(readLevel(level), world);
+	}
+	
+	/**
+	 * Reads the lines of the file of a level, in the levels directory.
+	 * @param level : the level's number, used to file opening.
+	 * @return the lines of the level.
+	 * @throws IOException when the required level.txt is not found, or another IOException happens.
+	 */
+	public static List<String> readLevel(int level) throws IOException {
+		return readLevel("levels", level);
+	}
+	
+	/**
+	 * Reads the lines of the file of a level, in the given directory.
+	 * @param directory : the directory of the levels.
+	 * @param level : the level's number, used to file opening.
+	 * @return the lines of the level.
+	 * @throws IOException when the required level.txt is not found, or another IOException happens.
+	 */
+	public static List<String> readLevel(String directory, int level) throws IOException {
+		return Files.readAllLines(Paths.get(directory, "level" + level + ".txt"));
+	}
+	
+	/**
+	 * Initialize the board from the lines of a level. The lines are only read, 
+	 * so the same lines can be used to initialize several boards at the same time.
+	 * @param lines : the lines of the level, one string per row of the grid.
+	 * @param world : a world for JBox2D, that must not be shared with another board.
+	 * @return a board to represent the level.
+	 */
+	public static Board initializeBoard(List<String> lines, World world) {
+		return initializeBoard(lines, WorldShards.single(world));
+	}
+	
+	/**
+	 * Initialize the board from the lines of a level, with sharded physics : 
+	 * each region of the level separated from the others by walls has its own world, 
+	 * and the worlds are stepped in parallel in the given pool.
+	 * @param lines : the lines of the level, one string per row of the grid.
+	 * @param world : a world for JBox2D, that must not be shared with another board. 
+	 * It is the world of the first region, the others are created with the same gravity.
+	 * @param pool : the pool in which the worlds are stepped.
+	 * @return a board to represent the level.
+	 */
+	public static Board initializeBoard(List<String> lines, World world, ForkJoinPool pool) {
+		return initializeBoard(lines, WorldShards.partition(lines, world, pool));
+	}
+	
+	private static Board initializeBoard(List<String> lines, WorldShards worlds) {
 		Board b;
-		Path p = Paths.get("levels/level" + level + ".txt");
 		int width = 0;
 		int length = 0;
 		ArrayList<DisplayableCell> garbageList =  new ArrayList<>();
-		ArrayList<ArrayList<Cell>> levelArray = fillGrid(world, p, garbageList);
+		DebrisSolver debris = new DebrisSolver();
+		ArrayList<ArrayList<Cell>> levelArray = fillGrid(worlds, lines, garbageList, debris);
 		width = levelArray.get(0).size();
 		length = levelArray.size();
 		DisplayableCell[][] grid = createLevelArray(levelArray, length, width);
-		b = new Board(world, length, width, grid, garbageList);
+		b = new Board(worlds, length, width, grid, garbageList, debris);
 		return b;
 	}
 	
 	/**
-	 * Fills the grid with the 'letters' (in ASCII code) of the given file.
-	 * Also tests if the board may be legal, i.e. the file only contains corrects letters : W, T, G, J,
-	 * and there is one and only one player
+	 * Fills the grid with the 'letters' (in ASCII code) of the given lines.
+	 * Also tests if the board may be legal, i.e. the lines only contains corrects letters : W, T, G, g, J,
+	 * and there is one and only one player. The debris are added to the debris solver, on an empty cell.
 	 * 
-	 * @param p the path to the file.
+	 * @param lines the lines of the level.
 	 * @return true if the grid is correctly filled, false if not. 
-	 * @throws IOException when the required level.txt is not found, or another IOException happens.
 	 */
-	private static ArrayList<ArrayList<Cell>> fillGrid(World world, Path p, ArrayList<DisplayableCell> garbageList) throws IOException {
+	private static ArrayList<ArrayList<Cell>> fillGrid(WorldShards worlds, List<String> lines, ArrayList<DisplayableCell> garbageList, DebrisSolver debris) {
 		ArrayList<ArrayList<Cell>> levelArray =  new ArrayList<>();
-		String line;
 		int i = 0, j = 0;
 		
-		BufferedReader reader = Files.newBufferedReader(p);
-		line = reader.readLine();
-		while(line != null) {
+		for(String line : lines) {
 			ArrayList<Cell> lineArray = new ArrayList<>();
 			i = 0;
 			for(int c : line.toCharArray()) {
-				if(charIsLegal(c)) {
-					DisplayableCell cell = Cell.newCell(world, j, i, c);
+				if(c == Cell.DEBRIS) {
+					debris.add(j, i);
+					lineArray.add(new Empty(j, i));
+				}
+				else if(charIsLegal(c)) {
+					DisplayableCell cell = worlds.newCell(j, i, c);
 					lineArray.add(cell);
 					if (c == Cell.GARBAGE) {
 						garbageList.add(cell);
@@ -109,7 +321,6 @@ public class Board implements Displayable{
 			}
 			j++;
 			levelArray.add(lineArray);
-			line = reader.readLine();
 		}	
 		return levelArray;
 	}
@@ -238,10 +449,11 @@ public class Board implements Displayable{
 	/**
 	 * Tests wether the char represented by c is a legal character or not.
 	 * @param c the int representing the character to test.
-	 * @return  true if c is either a wall, a trashcan, a garbage, the player, or an empty case, false if not.
+	 * @return  true if c is either a wall, a trashcan, a garbage, a debris, the player, or an empty case, false if not.
 	 */
 	public static boolean charIsLegal(int c) {
-		return c == DisplayableCell.WALL || c == DisplayableCell.TRASHCAN || c == DisplayableCell.GARBAGE || Character.isWhitespace(c);
+		return c == DisplayableCell.WALL || c == DisplayableCell.TRASHCAN || c == DisplayableCell.GARBAGE || c == DisplayableCell.DEBRIS 
+				|| Character.isWhitespace(c);
 	}
 	
 	/**
@@ -266,15 +478,16 @@ public class Board implements Displayable{
 	public void dropBomb() {
 		int xPos = player.getX();
 		int yPos = player.getY();
-		Vec2 vec = new Vec2(xPos, yPos);
-		if(bombMap.get(vec) != null) {
-			bombMap.remove(vec);
+		int cell = yPos * width + xPos;
+		if(bombs.get(cell) != null) {
+			bombs.remove(cell).setActive(false);
 			bombLeft += 1;
 		}
 		else if(bombLeft > 0) {
-			bombMap.put(vec, Bomb.newBomb(world, yPos, xPos));
+			bombs.put(cell, Bomb.newBomb(worlds.worldAt(yPos, xPos), yPos, xPos));
 			bombLeft -= 1;
-		}	
+		}
+		markBombDirty(yPos, xPos);
 	}
 	
 	/**
@@ -299,63 +512,343 @@ public class Board implements Displayable{
 	
 	/**
 	 * Draws the board in the given graphics. A board draws everything it contains : 
-	 * the grid, the bombs, the garbages, and the player.
+	 * the grid, the bombs, the garbages, and the player. 
+	 * Only what intersects the clip of the graphics is drawn, and the shapes of the same color are drawn at once.
 	 */
 	@Override
 	public void draw(Graphics2D graphics) {
-	    for(int i = 0; i < length; i ++) {
-		    for (int j = 0; j < width; j ++) {
-		    	DisplayableCell cell = grid[i][j];
-		    	cell.draw(graphics);
-		    }
-	    }
-	    for (DisplayableCell cell : garbageList) {
-	    	cell.draw(graphics);
+	    drawGrid(graphics);
+	    garbageGrid.forEachInRange(Math.floorDiv(visible.y - Sizes.TOP_MARGIN, Sizes.STEP) - 1, 
+	    		Math.floorDiv(visible.x - Sizes.LEFT_MARGIN, Sizes.STEP) - 1, 
+	    		Math.floorDiv(visible.y + visible.height - Sizes.TOP_MARGIN, Sizes.STEP) + 1, 
+	    		Math.floorDiv(visible.x + visible.width - Sizes.LEFT_MARGIN, Sizes.STEP) + 1, garbageCollector);
+	    debris.addTo(greens, visible);
+	    greens.fill(graphics);
+	    for (int i = 0; i < bombs.size(); i++) {
+	    	Bomb b = bombs.bomb(i);
+	    	if (isBombVisible(b))
+	    		b.addTo(bombBodies, rays, timeLeft(b), b.getExplosion());
 	    }
-	    for (Map.Entry<Vec2, Bomb> entry : bombMap.entrySet()) {
-	    	entry.getValue().draw(graphics);
+	    bombBodies.fill(graphics);
+	    for (int i = 0; i < bombs.size(); i++) {
+	    	Bomb b = bombs.bomb(i);
+	    	if (isBombVisible(b))
+	    		b.drawLabel(graphics, timeLeft(b), b.getExplosion());
 	    }
+	    rays.stroke(graphics);
 	    player.draw(graphics);
 	}
 	
+	/**
+	 * Computes the part of the board visible in the given graphics, from its clip.
+	 * Without clip, the whole board is visible.
+	 * @param graphics the graphics in which the board is drawn.
+	 */
+	private void updateVisible(Graphics2D graphics) {
+		visible.setBounds(Sizes.LEFT_MARGIN, Sizes.TOP_MARGIN, width * Sizes.STEP, length * Sizes.STEP);
+		graphics.getClipBounds(visible);
+	}
+	
+	/**
+	 * Tells if a square drawn at the given position intersects the visible part of the board, 
+	 * as computed by the last {@code drawGrid}.
+	 * @param x the abscissa of the top left corner of the square, in pixels of the game.
+	 * @param y the ordinate of the top left corner of the square, in pixels of the game.
+	 * @param size the side of the square, in pixels.
+	 * @return true if the square is visible.
+	 */
+	boolean isVisible(float x, float y, float size) {
+		return x + size >= visible.x && y + size >= visible.y 
+				&& x <= visible.x + visible.width && y <= visible.y + visible.height;
+	}
+	
+	/**
+	 * Tells if the given bomb, its label or its explosion can be visible.
+	 * @param b the bomb.
+	 * @return true if the bomb may be visible.
+	 */
+	boolean isBombVisible(Bomb b) {
+		int reach = Sizes.EXPLOSION_RADIUS + 2 * Sizes.STEP;
+		return isVisible(Sizes.LEFT_MARGIN + b.getY() * Sizes.STEP - reach, 
+				Sizes.TOP_MARGIN + b.getX() * Sizes.STEP - reach, 2 * reach + Sizes.STEP);
+	}
+	
+	/**
+	 * Marks a cell as changed, so it is drawn again by the next {@code drawChanges}. 
+	 * The cells outside the board are ignored.
+	 * @param row the row of the cell.
+	 * @param col the column of the cell.
+	 */
+	public void markDirty(int row, int col) {
+		if (row >= 0 && col >= 0 && row < length && col < width)
+			dirtyCells.set(row * width + col);
+	}
+	
+	/**
+	 * Marks the whole board as changed, so it is fully drawn by the next {@code drawChanges}. 
+	 * It must be called when something else was drawn over the board.
+	 */
+	public void markAllDirty() {
+		fullyDirty = true;
+	}
+	
+	/**
+	 * Marks as changed the cell of a bomb, and the cells its label overlaps : 
+	 * the label is written from the top left corner of the cell, so it goes over the next cells and the upper ones.
+	 * @param row the row of the bomb.
+	 * @param col the column of the bomb.
+	 */
+	private void markBombDirty(int row, int col) {
+		for (int i = row - 1; i <= row; i++) {
+			for (int j = col; j <= col + 2; j++) {
+				markDirty(i, j);
+			}
+		}
+	}
+	
+	/**
+	 * Marks as changed the cells under the player drawn at the given position : one cell, 
+	 * or up to four cells when it is drawn between them.
+	 * @param x the drawn abscissa of the player, in cells.
+	 * @param y the drawn ordinate of the player, in cells.
+	 */
+	private void markPlayerDirty(float x, float y) {
+		for (int i = (int) Math.floor(y); i <= (int) Math.ceil(y); i++) {
+			for (int j = (int) Math.floor(x); j <= (int) Math.ceil(x); j++) {
+				markDirty(i, j);
+			}
+		}
+	}
+	
+	/**
+	 * Draws what changed since the last call, with the given path. During the planning phase, only the changed cells are drawn : 
+	 * the cells marked with {@code markDirty}, and the old and new cells of the player. 
+	 * The whole board is drawn the first time, after {@code markAllDirty}, and during the physics phase.
+	 * @param graphics the graphics in which the board was last drawn.
+	 * @param path the path to draw, or null if there is none.
+	 */
+	public void drawChanges(Graphics2D graphics, Path path) {
+		if (fullyDirty || !planning) {
+			draw(graphics);
+			if (path != null)
+				path.draw(graphics);
+		}
+		else {
+			if (player.getDrawnX() != drawnPlayerX || player.getDrawnY() != drawnPlayerY) {
+				markPlayerDirty(drawnPlayerX, drawnPlayerY);
+				markPlayerDirty(player.getDrawnX(), player.getDrawnY());
+			}
+			Shape clip = graphics.getClip();
+			for (int id = dirtyCells.nextSetBit(0); id >= 0; id = dirtyCells.nextSetBit(id + 1)) {
+				drawCell(graphics, id / width, id % width, path);
+			}
+			graphics.setClip(clip);
+		}
+		dirtyCells.clear();
+		fullyDirty = false;
+		drawnPlayerX = player.getDrawnX();
+		drawnPlayerY = player.getDrawnY();
+	}
+	
+	/**
+	 * Draws again one cell of the board during the planning phase, clipped to the cell : its part of the static layer, 
+	 * the garbage and the debris in it, the bombs whose label can overlap it, the player, and the path.
+	 * @param graphics the graphics in which the cell must be drawn.
+	 * @param row the row of the cell.
+	 * @param col the column of the cell.
+	 * @param path the path to draw, or null if there is none.
+	 */
+	private void drawCell(Graphics2D graphics, int row, int col, Path path) {
+		int x = Sizes.LEFT_MARGIN + col * Sizes.STEP;
+		int y = Sizes.TOP_MARGIN + row * Sizes.STEP;
+		graphics.setClip(x, y, Sizes.STEP, Sizes.STEP);
+		if (staticLayer != null) {
+			graphics.drawImage(staticLayer, x, y, x + Sizes.STEP, y + Sizes.STEP, 
+					col * Sizes.STEP, row * Sizes.STEP, (col + 1) * Sizes.STEP, (row + 1) * Sizes.STEP, null);
+			if (grid[row][col] instanceof Garbage)
+				grid[row][col].draw(graphics);
+		}
+		else {
+			graphics.setColor(Color.WHITE);
+			graphics.fillRect(x, y, Sizes.STEP, Sizes.STEP);
+			grid[row][col].draw(graphics);
+		}
+		debris.drawCell(graphics, row, col);
+		for (int i = row; i <= Math.min(row + 1, length - 1); i++) {
+			for (int j = Math.max(col - 2, 0); j <= col; j++) {
+				Bomb b = bombs.get(i * width + j);
+				if (b != null)
+					b.draw(graphics, timeLeft(b), b.getExplosion());
+			}
+		}
+		if (Math.abs(player.getDrawnX() - col) < 1 && Math.abs(player.getDrawnY() - row) < 1)
+			player.draw(graphics);
+		if (path != null)
+			path.drawAt(graphics, col, row);
+	}
+	
+	/**
+	 * Draws the cells of the grid in the given graphics, and computes the visible part of the board. 
+	 * The walls and the trashcans never move, so they are drawn once in the static layer, which is then copied at each frame.
+	 * When the board is too large for the layer, only the visible rows are drawn, 
+	 * with the walls and the trashcans following each other in a row filled at once.
+	 * @param graphics the graphics in which the grid must be drawn.
+	 */
+	void drawGrid(Graphics2D graphics) {
+		updateVisible(graphics);
+		if (width * Sizes.STEP <= MAX_LAYER_SIZE && length * Sizes.STEP <= MAX_LAYER_SIZE) {
+			if (staticLayer == null)
+				staticLayer = createStaticLayer(graphics);
+			graphics.drawImage(staticLayer, Sizes.LEFT_MARGIN, Sizes.TOP_MARGIN, null);
+			return;
+		}
+		int minRow = Math.max(0, Math.floorDiv(visible.y - Sizes.TOP_MARGIN, Sizes.STEP));
+		int maxRow = Math.min(length - 1, Math.floorDiv(visible.y + visible.height - Sizes.TOP_MARGIN, Sizes.STEP));
+		int minCol = Math.max(0, Math.floorDiv(visible.x - Sizes.LEFT_MARGIN, Sizes.STEP));
+		int maxCol = Math.min(width - 1, Math.floorDiv(visible.x + visible.width - Sizes.LEFT_MARGIN, Sizes.STEP));
+		if (minRow > maxRow || minCol > maxCol)
+			return;
+		graphics.setColor(Color.WHITE);
+		graphics.fillRect(Sizes.LEFT_MARGIN + minCol * Sizes.STEP, Sizes.TOP_MARGIN + minRow * Sizes.STEP, 
+				(maxCol - minCol + 1) * Sizes.STEP, (maxRow - minRow + 1) * Sizes.STEP);
+		for (int i = minRow; i <= maxRow; i++) {
+			int j = minCol;
+			while (j <= maxCol) {
+				DisplayableCell cell = grid[i][j];
+				if (cell.isEmpty() || cell instanceof Garbage) {
+					j++;
+					continue;
+				}
+				Color color = cell.color();
+				int start = j;
+				while (j <= maxCol && !grid[i][j].isEmpty() && !(grid[i][j] instanceof Garbage) && grid[i][j].color() == color) {
+					j++;
+				}
+				graphics.setColor(color);
+				graphics.fillRect(Sizes.LEFT_MARGIN + start * Sizes.STEP, Sizes.TOP_MARGIN + i * Sizes.STEP, 
+						(j - start) * Sizes.STEP, Sizes.STEP);
+			}
+		}
+	}
+	
+	/**
+	 * Draws the walls and the trashcans of the grid on a white image, compatible with the given graphics.
+	 * The garbages of the grid are drawn like empty cells : they are drawn at each frame, at the position of their body.
+	 * @param graphics the graphics in which the image will be drawn.
+	 * @return the image.
+	 */
+	private BufferedImage createStaticLayer(Graphics2D graphics) {
+		BufferedImage image = graphics.getDeviceConfiguration().createCompatibleImage(width * Sizes.STEP, length * Sizes.STEP);
+		Graphics2D layer = image.createGraphics();
+		try {
+			layer.setColor(Color.WHITE);
+			layer.fillRect(0, 0, image.getWidth(), image.getHeight());
+			layer.translate(-Sizes.LEFT_MARGIN, -Sizes.TOP_MARGIN);
+			for(int i = 0; i < length; i ++) {
+				for (int j = 0; j < width; j ++) {
+					DisplayableCell cell = grid[i][j];
+					if (!cell.isEmpty() && !(cell instanceof Garbage))
+						cell.draw(layer);
+				}
+			}
+		} finally {
+			layer.dispose();
+		}
+		return image;
+	}
+	
+	/**
+	 * Adds to the given batch the visible debris of the screen positions of a frame.
+	 * @param batch the batch of green shapes in which the debris must be added.
+	 * @param screen the screen positions of the debris.
+	 * @param count the number of debris.
+	 */
+	void addDebris(ShapeBatch batch, float[] screen, int count) {
+		debris.addTo(batch, screen, count, visible);
+	}
+	
+	/**
+	 * Creates an empty frame large enough to contain a snapshot of the board during the physics phase.
+	 * @return the new frame.
+	 */
+	PhysicsFrame newFrame() {
+		return new PhysicsFrame(this, garbageMap.size(), bombs.size(), debris.size());
+	}
+	
+	/**
+	 * Fills the given frame with a snapshot of the moving parts of the board.
+	 * @param frame the frame to fill.
+	 * @param tick the number of the physics tick of the snapshot.
+	 */
+	void snapshot(PhysicsFrame frame, long tick) {
+		int i = 0;
+		for (Body body : garbageMap.keySet()) {
+			Vec2 position = body.getPosition();
+			frame.garbages[2 * i] = position.y - Sizes.STEP / 2;
+			frame.garbages[2 * i + 1] = position.x - Sizes.STEP / 2;
+			i++;
+		}
+		frame.garbageCount = i;
+		frame.debrisCount = debris.copyScreenPositions(frame.debris);
+		for (i = 0; i < bombs.size(); i++) {
+			Bomb b = bombs.bomb(i);
+			frame.bombs[i] = b;
+			frame.timeLeft[i] = timeLeft(b);
+			frame.explosions[i] = b.getExplosion();
+		}
+		frame.tick = tick;
+	}
+	
 	/**
 	 * Increments or decrements the timeLeft of the nomb at player position.
 	 * @param increment Tell if the time must be incremented or decremented.
 	 */
 	public void setTimeLeft(boolean increment) {
-		Bomb b = bombMap.get(new Vec2(player.getX(), player.getY()));
+		Bomb b = bombs.get(player.getY() * width + player.getX());
 		if (b != null) {
 			if (increment)
 				b.incrementTimeLeft();
 			else
 				b.decrementTimeLeft();
+			markBombDirty(player.getY(), player.getX());
 		}
 	}
 	
 	/**
-	 * Runs all the bomb of the map, decreasing their timeLeft by Sizes.LOOP_TIME 
-	 * (divided by 1000 because TimeLeft is in seconds).
-	 * Checks if the bomb must explode, and make it explode if needed
-	 * @return false if the bombMap still has elements, true if not.
+	 * Returns the time left before the explosion of the given bomb, at the current physics tick. 
+	 * During the physics phase, the time left of the bombs is not decremented, 
+	 * the elapsed time is computed from {@code physicsTick}.
+	 * @param b the bomb.
+	 * @return the time left, in seconds.
+	 */
+	private double timeLeft(Bomb b) {
+		return b.getTimeLeft() - physicsTick * (Sizes.LOOP_TIME / 1000d);
+	}
+	
+	/**
+	 * Runs one tick of Sizes.LOOP_TIME of the bombs : 
+	 * the bomb timer makes explode the bombs whose time is over, and only them. 
+	 * The explosions also blast the debris, and the garbages of the other worlds.
+	 * @return true if all the bombs have exploded, false if not.
 	 */
 	public boolean runBomb() {
-		Iterator<Bomb> it = bombMap.values().iterator();
-		while (it.hasNext()) {
-			Bomb b = it.next();
-			b.decrementTimeLeft(Sizes.LOOP_TIME / 1000d);
-			if (b.isExploding() && !b.explosionDone()) {
-				b.explode();
-			}
-		}
-		return bombMap.isEmpty();
+		physicsTick++;
+		bombTimer.fire(physicsTick, blaster);
+		return bombTimer.isEmpty();
+	}
+	
+	private void blast(Bomb b) {
+		worlds.fireElsewhere(b);
+		debris.blast(Sizes.LEFT_MARGIN + b.getX() * Sizes.STEP + Sizes.STEP / 2, 
+				Sizes.TOP_MARGIN + b.getY() * Sizes.STEP + Sizes.STEP / 2, Sizes.EXPLOSION_RADIUS);
 	}
 	
 	/**
 	 * Removes all the garbage from the grid. We don't need them in the grid anymore for A*,
-	 * and we need display an empty case instead. The garbage still exists in garbageList.
+	 * and we need display an empty case instead. The garbage still exists in garbageMap.
 	 */
 	public void removeGarbage() {
-		for(DisplayableCell cell : garbageList) {
+		for(DisplayableCell cell : garbageMap.values()) {
 			int x = cell.getX();
 			int y = cell.getY();
 			grid[x][y] = new Empty(x, y);
@@ -363,39 +856,154 @@ public class Board implements Displayable{
 	}
 	
 	/**
-	 * Destroys the garbage that has the "DESTROYED" flag in Body.userData. Destroys means destroying the fixture of the body, 
-	 * and then remove the garbage from the list.
+	 * Destroys the garbage pushed in the destroy queues by the collision handlers during the last step. 
+	 * Destroys means deactivating the body of the garbage, so it leaves the world but can be restored 
+	 * by {@code restoreCheckpoint}, and then remove the garbage from the map.
+	 * Only the queued garbage are visited, so this costs nothing when no garbage hit a trashcan.
 	 */
 	public void destroyGarbage() {
-		Predicate<DisplayableCell> toBeDestroyed = cell -> {return cell.getBody().getUserData().equals(Garbage.DESTROY);};
-		garbageList.stream()
-				   .filter(toBeDestroyed)
-				   .forEach(cell -> {world.destroyBody(cell.getBody());});
-		garbageList.removeIf(toBeDestroyed);
+		Body body;
+		while((body = worlds.pollDestroyed()) != null) {
+			body.setActive(false);
+			garbageMap.remove(body);
+		}
+	}
+	
+	/**
+	 * Saves the current state of the level in memory. Must be called at the start of the physics phase, 
+	 * before the garbages are removed from the grid.
+	 */
+	public void saveCheckpoint() {
+		checkpoint = new Checkpoint(this);
+	}
+	
+	/**
+	 * Restores in place the state saved by the last {@code saveCheckpoint} : the grid, the bombs, 
+	 * the player and the garbages are back where they were at the start of the physics phase. 
+	 * Neither the world nor the level file are rebuilt.
+	 */
+	public void restoreCheckpoint() {
+		if (checkpoint == null)
+			throw new IllegalStateException("there is no checkpoint to restore");
+		checkpoint.restore(this);
+	}
+	
+	/**
+	 * Returns the spatial hash of the garbages, as they were after the last step of the world.
+	 * @return the spatial hash.
+	 */
+	public GarbageGrid getGarbageGrid() {
+		return garbageGrid;
+	}
+	
+	/**
+	 * Tells if the player has been placed on the board.
+	 * @return true if the player is on the board.
+	 */
+	public boolean isPlayerPlaced() {
+		return player.getY() != -1;
+	}
+	
+	/**
+	 * Sets the governor choosing the quality of the steps of the worlds. 
+	 * By default, the board has a governor without budget, which always steps with the full quality.
+	 * @param stepGovernor the governor.
+	 */
+	public void setStepGovernor(StepGovernor stepGovernor) {
+		this.stepGovernor = Objects.requireNonNull(stepGovernor);
+	}
+	
+	/**
+	 * Returns the governor choosing the quality of the steps of the worlds, with its metrics.
+	 * @return the governor.
+	 */
+	public StepGovernor getStepGovernor() {
+		return stepGovernor;
 	}
 	
 	/**
-	 * Steps once the world of the board.
+	 * Runs one tick of the worlds of the board : steps them if the step governor says so, 
+	 * with the iterations and the time step it has chosen, and updates the spatial hash of the garbages. 
+	 * Then counts the ticks during which nothing moved.
 	 */
 	public void worldStep() {
-		world.step(1/60f, 8, 3);
+		if (stepGovernor.tick()) {
+			float timeStep = stepGovernor.getStride() / 60f;
+			long t0 = System.nanoTime();
+			worlds.step(timeStep, stepGovernor.getVelocityIterations(), stepGovernor.getPositionIterations());
+			debris.step(timeStep);
+			stepGovernor.record(System.nanoTime() - t0);
+			garbageGrid.update(garbageMap.values());
+		}
+		if (isQuiet())
+			quietSteps++;
+		else
+			quietSteps = 0;
+	}
+	
+	/**
+	 * Tells if nothing can move anymore in the world : every bomb has exploded, 
+	 * and every garbage is either asleep or slower than Sizes.SETTLE_VELOCITY.
+	 * @return true if the world is quiet.
+	 */
+	private boolean isQuiet() {
+		if (!bombTimer.isEmpty())
+			return false;
+		moving = false;
+		garbageMap.keySet().forEach(speedCheck);
+		return !moving && debris.isSlowerThan(Sizes.SETTLE_VELOCITY);
+	}
+	
+	/**
+	 * Tells if the world has settled, which means it has been quiet for Sizes.SETTLE_STEPS steps.
+	 * Once settled, the remaining garbages will never reach a trashcan.
+	 * @return true if the world has settled.
+	 */
+	public boolean isSettled() {
+		return quietSteps >= Sizes.SETTLE_STEPS;
 	}
 	
 	/**
 	 * Set all the physics and more generally all that must be done before the physic phase of the game.
-	 * Hides the player and creates a collision handler.
+	 * Hides the player, schedules the bombs, and creates a collision handler and a collision filter in each world.
 	 */
 	public void setPhysics() {
 		setPlayerPos(-1, -1);
-		CollisionHandler handler = new CollisionHandler();
-		world.setContactListener(handler);
+		planning = false;
+		physicsTick = 0;
+		stepGovernor.restart();
+		bombTimer.clear();
+		for (int i = 0; i < bombs.size(); i++) {
+			bombTimer.schedule(bombs.bomb(i));
+		}
+		debris.bindGrid(grid);
+		worlds.setPhysics();
+	}
+	
+	/**
+	 * Returns a checksum of the state of the board : the remaining bombs and garbages, 
+	 * with the exact position and velocity of each garbage. Two boards with the same checksum are considered identical.
+	 * @return the checksum.
+	 */
+	public long checksum() {
+		long checksum = 31 * bombLeft + bombs.size();
+		checksum = 31 * checksum + garbageMap.size();
+		for (Body body : garbageMap.keySet()) {
+			Vec2 position = body.getPosition();
+			Vec2 velocity = body.getLinearVelocity();
+			checksum = 31 * checksum + Float.floatToIntBits(position.x);
+			checksum = 31 * checksum + Float.floatToIntBits(position.y);
+			checksum = 31 * checksum + Float.floatToIntBits(velocity.x);
+			checksum = 31 * checksum + Float.floatToIntBits(velocity.y);
+		}
+		return debris.checksum(checksum);
 	}
 	
 	/**
-	 * Tells if the gale is currently won, which means there is no more garbage in th list.
+	 * Tells if the gale is currently won, which means there is no more garbage in th map, and no more debris.
 	 * @return a boolean telling if the gale is won.
 	 */
 	public boolean isWon() {
-		return garbageList.isEmpty();
+		return garbageMap.isEmpty() && debris.size() == 0;
 	}
 }
@@ -0,0 +1,115 @@
+package fr.umlv.wallj.game;
+
+import java.util.Arrays;
+
+import fr.umlv.wallj.bomb.Bomb;
+
+/**
+ * The index of the bombs of a board, keyed by cell id ({@code row * width + column}).
+ * The {@code slots} field is a dense array over the grid : for each cell, the position of its bomb 
+ * in {@code bombs} plus one, or 0 if there is no bomb on the cell.
+ * The {@code bombs} and {@code cells} fields are compact arrays of the bombs and of their cell ids, 
+ * so drawing and ticking the bombs only walk {@code size} contiguous elements.
+ * Removing a bomb moves the last bomb in its place, so all the operations are in constant time.
+ * @author Severin Gosset - Denis Biguenet
+ */
+class BombIndex {
+	private final int[] slots;
+	private Bomb[] bombs;
+	private int[] cells;
+	private int size;
+	
+	/**
+	 * Creates an empty index for a grid of the given number of cells.
+	 * @param cellCount the number of cells of the grid.
+	 */
+	BombIndex(int cellCount) {
+		slots = new int[cellCount];
+		bombs = new Bomb[4];
+		cells = new int[4];
+	}
+	
+	/**
+	 * Returns the bomb on the given cell.
+	 * @param cell the id of the cell.
+	 * @return the bomb, or null if there is none.
+	 */
+	Bomb get(int cell) {
+		int slot = slots[cell];
+		return slot == 0 ? null : bombs[slot - 1];
+	}
+	
+	/**
+	 * Puts a bomb on the given cell, which must not have a bomb yet.
+	 * @param cell the id of the cell.
+	 * @param b the bomb.
+	 */
+	void put(int cell, Bomb b) {
+		if (slots[cell] != 0)
+			throw new IllegalStateException("there is already a bomb on this cell");
+		if (size == bombs.length) {
+			bombs = Arrays.copyOf(bombs, size * 2);
+			cells = Arrays.copyOf(cells, size * 2);
+		}
+		bombs[size] = b;
+		cells[size] = cell;
+		size++;
+		slots[cell] = size;
+	}
+	
+	/**
+	 * Removes the bomb from the given cell.
+	 * @param cell the id of the cell.
+	 * @return the removed bomb, or null if there was none.
+	 */
+	Bomb remove(int cell) {
+		int slot = slots[cell];
+		if (slot == 0)
+			return null;
+		Bomb b = bombs[slot - 1];
+		size--;
+		bombs[slot - 1] = bombs[size];
+		cells[slot - 1] = cells[size];
+		slots[cells[slot - 1]] = slot;
+		bombs[size] = null;
+		slots[cell] = 0;
+		return b;
+	}
+	
+	/**
+	 * Returns the number of bombs.
+	 * @return the number of bombs.
+	 */
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the i-th bomb of the compact array.
+	 * @param i the index, between 0 and size() excluded.
+	 * @return the bomb.
+	 */
+	Bomb bomb(int i) {
+		return bombs[i];
+	}
+	
+	/**
+	 * Returns the cell of the i-th bomb of the compact array.
+	 * @param i the index, between 0 and size() excluded.
+	 * @return the id of the cell.
+	 */
+	int cell(int i) {
+		return cells[i];
+	}
+	
+	/**
+	 * Removes all the bombs.
+	 */
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			slots[cells[i]] = 0;
+			bombs[i] = null;
+		}
+		size = 0;
+	}
+}
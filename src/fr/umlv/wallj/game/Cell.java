@@ -7,6 +7,7 @@ import org.jbox2d.dynamics.World;
 /**
  * Represents a cell in the grid of a board. It can be either a Wall, a Garbage, a Trashcan, or an Empty cell.
  * The four constants {@code WALL}, {@code EMPTY}, {@code GARBAGE} and {@code TRASHCAN} are the differents types of Cells.
+ * The {@code DEBRIS} constant is a small garbage, managed by the {@code DebrisSolver} : its cell is an Empty cell.
  * Each cells has x and y coordinates.
  * @author Severin Gosset - Denis Biguenet
  */
@@ -15,6 +16,7 @@ public interface Cell {
 	public final static int EMPTY = ' ';
 	public final static int GARBAGE = 'G';
 	public final static int TRASHCAN = 'T';
+	public final static int DEBRIS = 'g';
 	
 	/**
 	 * Returns the x of the cell.
@@ -50,17 +52,17 @@ public interface Cell {
 			case ' ' :
 				return new Empty(x, y);
 			case 'G' : {
-				Body body = DisplayableCell.initializeBody(world, x, y, BodyType.DYNAMIC, type);
+				Body body = DisplayableCell.initializeBody(world, x, y, BodyType.DYNAMIC, CollisionCategory.GARBAGE);
 				newCell = new Garbage(x, y, body);
 				return newCell;
 			}
 			case 'W' :{
-				Body body = DisplayableCell.initializeBody(world, x, y, BodyType.STATIC, type);
+				Body body = DisplayableCell.initializeBody(world, x, y, BodyType.STATIC, CollisionCategory.WALL);
 				newCell = new Wall(x, y, body);
 				return newCell;
 			}
 			case 'T' :{
-				Body body = DisplayableCell.initializeBody(world, x, y, BodyType.STATIC, type);
+				Body body = DisplayableCell.initializeBody(world, x, y, BodyType.STATIC, CollisionCategory.TRASHCAN);
 				newCell = new Trashcan(x, y, body);
 				return newCell;
 			}
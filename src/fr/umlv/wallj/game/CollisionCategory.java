@@ -0,0 +1,78 @@
+package fr.umlv.wallj.game;
+
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.FixtureDef;
+
+/**
+ * The typed tag of a body in the JBox2D world. It is stored in Body.userData, 
+ * so the collision handler can dispatch a contact with reference comparisons instead of boxed equality.
+ * Each category also has JBox2D filter bits :
+ * The {@code categoryBits} field is the bit identifying the category.
+ * The {@code maskBits} field is the set of categories this category may collide with.
+ * Only the garbages move, so the static categories only collide with garbages.
+ * {@code DESTROYED} is the tag of a garbage which hit a trashcan and waits to be destroyed.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public enum CollisionCategory {
+	WALL(0x0001, 0x0004),
+	TRASHCAN(0x0002, 0x0004),
+	GARBAGE(0x0004, 0x000F),
+	BOMB(0x0008, 0x0004),
+	DESTROYED(0x0004, 0x000F);
+	
+	private final int categoryBits;
+	private final int maskBits;
+	
+	private CollisionCategory(int categoryBits, int maskBits) {
+		this.categoryBits = categoryBits;
+		this.maskBits = maskBits;
+	}
+	
+	/**
+	 * Returns the category bits of the category.
+	 * @return the category bits.
+	 */
+	public int getCategoryBits() {
+		return categoryBits;
+	}
+	
+	/**
+	 * Returns the mask bits of the category.
+	 * @return the mask bits.
+	 */
+	public int getMaskBits() {
+		return maskBits;
+	}
+	
+	/**
+	 * Sets the filter of the given fixture definition to match the category.
+	 * @param fixDef the fixture definition to filter.
+	 */
+	public void applyTo(FixtureDef fixDef) {
+		fixDef.filter.categoryBits = categoryBits;
+		fixDef.filter.maskBits = maskBits;
+	}
+	
+	/**
+	 * Returns the category of the given body.
+	 * @param body the body.
+	 * @return the category stored in the userData of the body, or null if the body has none.
+	 */
+	public static CollisionCategory of(Body body) {
+		return (CollisionCategory) body.m_userData;
+	}
+	
+	/**
+	 * Returns the category of a cell type.
+	 * @param cellType the type of the cell. Must be one of the constant of Cell (W, G, T).
+	 * @return the category of the cell.
+	 */
+	static CollisionCategory ofCell(int cellType) {
+		switch(cellType) {
+			case Cell.WALL : return WALL;
+			case Cell.TRASHCAN : return TRASHCAN;
+			case Cell.GARBAGE : return GARBAGE;
+			default : throw new IllegalArgumentException("no collision category for this cell type");
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package fr.umlv.wallj.game;
+
+import org.jbox2d.callbacks.ContactFilter;
+import org.jbox2d.dynamics.Fixture;
+
+/**
+ * Filters the pairs of fixtures before JBox2D creates a contact between them, 
+ * so the pairs that never matter skip the narrow phase.
+ * Two fixtures collide only if each category is in the mask of the other,
+ * and a garbage waiting to be destroyed does not start new contacts.
+ * The categories are read from the bodies, whose fixtures were filtered with the same bits by {@code CollisionCategory.applyTo}.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class CollisionFilter extends ContactFilter {
+	/**
+	 * Tells if the two given fixtures should collide.
+	 * @param fixtureA the first fixture.
+	 * @param fixtureB the second fixture.
+	 * @return true if the contact must be created.
+	 */
+	@Override
+	public boolean shouldCollide(Fixture fixtureA, Fixture fixtureB) {
+		CollisionCategory a = CollisionCategory.of(fixtureA.m_body);
+		CollisionCategory b = CollisionCategory.of(fixtureB.m_body);
+		if (a == CollisionCategory.DESTROYED || b == CollisionCategory.DESTROYED)
+			return false;
+		return (a.getMaskBits() & b.getCategoryBits()) != 0 && (b.getMaskBits() & a.getCategoryBits()) != 0;
+	}
+}
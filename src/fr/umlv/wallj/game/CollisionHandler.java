@@ -1,22 +1,40 @@
 package fr.umlv.wallj.game;
 
+import java.util.Objects;
+import java.util.Queue;
+
 import org.jbox2d.callbacks.ContactImpulse;
 import org.jbox2d.callbacks.ContactListener;
 import org.jbox2d.collision.Manifold;
+import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.Fixture;
 import org.jbox2d.dynamics.contacts.Contact;
 
 /**
  * Manages the collision in the JBox2D world. Implements ContactListener. 
  * Only beginContact is used among the ContactListener method, so the others are empty.
+ * The {@code destroyQueue} field is the queue of the garbage bodies that hit a trashcan, 
+ * and that must be destroyed after the current step of the world.
  * @author Severin Gosset - Denis Biguenet
  */
 public class CollisionHandler implements ContactListener{
+	private final Queue<Body> destroyQueue;
+	
+	/**
+	 * Creates a new collision handler, which pushes the garbage to destroy in the given queue.
+	 * @param destroyQueue the queue of the bodies to destroy.
+	 */
+	public CollisionHandler(Queue<Body> destroyQueue) {
+		this.destroyQueue = Objects.requireNonNull(destroyQueue);
+	}
+	
 	/**
 	 * Defines the way the collision are handled. This specific method is called at the start of a contact :
 	 * we know at least one of the fixtures involved in the contact is a garbage, as only the garbages moves.
 	 * So if one of the fixture is a trashcan, the other is a garbage, and it must be destryed. 
-	 * We don't destroy the garbage in this method because it can cause some NullPointerException.
+	 * The category filter ensures a trashcan only touches garbages.
+	 * We don't destroy the garbage in this method because it can cause some NullPointerException, 
+	 * it is only flagged and pushed in the destroy queue.
 	 * @param contact the contact to manage.
 	 */
 	@Override
@@ -24,11 +42,23 @@ public class CollisionHandler implements ContactListener{
 		Fixture a = contact.m_fixtureA;
 		Fixture b = contact.m_fixtureB;
 		
-		if(a.getBody().m_userData.equals(Cell.TRASHCAN))
-			b.getBody().setUserData(Garbage.DESTROY);
+		if(CollisionCategory.of(a.getBody()) == CollisionCategory.TRASHCAN)
+			markDestroyed(b.getBody());
 		
-		else if(b.getBody().m_userData.equals(Cell.TRASHCAN))
-			a.getBody().setUserData(Garbage.DESTROY);
+		else if(CollisionCategory.of(b.getBody()) == CollisionCategory.TRASHCAN)
+			markDestroyed(a.getBody());
+	}
+	
+	/**
+	 * Flags the given garbage body as destroyed and pushes it in the queue. 
+	 * A garbage touching several trashcans is only pushed once.
+	 * @param body the body of the garbage.
+	 */
+	private void markDestroyed(Body body) {
+		if(CollisionCategory.of(body) == CollisionCategory.GARBAGE) {
+			body.setUserData(CollisionCategory.DESTROYED);
+			destroyQueue.add(body);
+		}
 	}
 
 	@Override
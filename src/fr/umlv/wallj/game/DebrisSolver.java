@@ -0,0 +1,320 @@
+package fr.umlv.wallj.game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import fr.umlv.wallj.display.ShapeBatch;
+
+/**
+ * A lightweight solver for the debris, the small garbages ('g' in the level files).
+ * A level can have tens of thousands of debris, too many to give each one a JBox2D body, 
+ * so the debris are points stored in flat arrays (structure of arrays), integrated in bulk, 
+ * and collided directly against the static grid of the board : they bounce on the walls, 
+ * and are destroyed when they hit a trashcan, like the garbages. The debris do not collide with each other.
+ * The {@code px, py} fields are the positions of the debris in the world, and {@code vx, vy} their velocities.
+ * Like the bodies of the cells, the abscissa of a debris is along the rows, and its ordinate along the columns.
+ * The {@code size} field is the number of debris left. A destroyed debris is replaced by the last one.
+ * The {@code solid} field is the static grid, one byte per cell : {@code FREE}, {@code WALL} or {@code TRASHCAN}.
+ * A step is made of two passes. The integrate pass clamps the velocities and computes the next positions 
+ * in the {@code nx, ny} fields : it only uses the arrays, without branches or calls, so the JIT can vectorize it. 
+ * The collision pass then checks each move against the grid, which needs branches, and removes the destroyed debris.
+ * The {@code nx, ny} arrays are grown with the others at the first step following a growth, and reused afterwards.
+ * @author Severin Gosset - Denis Biguenet
+ */
+class DebrisSolver {
+	private static final byte FREE = 0;
+	private static final byte WALL = 1;
+	private static final byte TRASHCAN = 2;
+	private static final float RESTITUTION = 0.85f;
+	private static final float BLAST_SPEED = 300;
+	private static final float MAX_SPEED = 0.9f * Sizes.STEP * 60;
+	private static final int DRAWN_SIZE = Sizes.STEP / 3;
+	
+	private float[] px = new float[16];
+	private float[] py = new float[16];
+	private float[] vx = new float[16];
+	private float[] vy = new float[16];
+	private float[] nx = new float[16];
+	private float[] ny = new float[16];
+	private int size;
+	private byte[] solid;
+	private int length;
+	private int width;
+	private final Rectangle2D.Float rect = new Rectangle2D.Float(0, 0, DRAWN_SIZE, DRAWN_SIZE);
+	
+	/**
+	 * Adds a debris, at rest in the center of the given cell.
+	 * @param row the row of the cell.
+	 * @param col the column of the cell.
+	 */
+	void add(int row, int col) {
+		if (size == px.length) {
+			px = Arrays.copyOf(px, size * 2);
+			py = Arrays.copyOf(py, size * 2);
+			vx = Arrays.copyOf(vx, size * 2);
+			vy = Arrays.copyOf(vy, size * 2);
+		}
+		px[size] = Sizes.LEFT_MARGIN + row * Sizes.STEP + Sizes.STEP / 2;
+		py[size] = Sizes.TOP_MARGIN + col * Sizes.STEP + Sizes.STEP / 2;
+		vx[size] = 0;
+		vy[size] = 0;
+		size++;
+	}
+	
+	/**
+	 * Builds the static grid the debris collide with, from the grid of the board. 
+	 * Must be called once the garbages have been removed from the grid.
+	 * @param grid the grid of the board.
+	 */
+	void bindGrid(Cell[][] grid) {
+		length = grid.length;
+		width = grid[0].length;
+		solid = new byte[length * width];
+		for (int i = 0; i < length; i++) {
+			for (int j = 0; j < width; j++) {
+				Cell cell = grid[i][j];
+				if (cell instanceof Trashcan)
+					solid[i * width + j] = TRASHCAN;
+				else if (!cell.isEmpty())
+					solid[i * width + j] = WALL;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of debris left.
+	 * @return the number of debris.
+	 */
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the content of the static grid at the given position of the world. 
+	 * Everything outside the grid is a wall.
+	 */
+	private byte solidAt(float x, float y) {
+		int row = (int) Math.floor((x - Sizes.LEFT_MARGIN) / Sizes.STEP);
+		int col = (int) Math.floor((y - Sizes.TOP_MARGIN) / Sizes.STEP);
+		if (row < 0 || col < 0 || row >= length || col >= width)
+			return WALL;
+		return solid[row * width + col];
+	}
+	
+	/**
+	 * Applies the blast of an explosion to all the debris : each debris inside the radius is pushed away 
+	 * from the center, the more the closer it is.
+	 * @param x the abscissa of the center of the explosion in the world.
+	 * @param y the ordinate of the center of the explosion in the world.
+	 * @param radius the radius of the explosion.
+	 */
+	void blast(float x, float y, float radius) {
+		for (int i = 0; i < size; i++) {
+			float dx = px[i] - x;
+			float dy = py[i] - y;
+			float d = (float) Math.sqrt(dx * dx + dy * dy) + 1e-3f;
+			float f = Math.max(0, 1 - d / radius) * BLAST_SPEED / d;
+			vx[i] += dx * f;
+			vy[i] += dy * f;
+		}
+	}
+	
+	/**
+	 * Steps all the debris of the given time : the velocities are clamped so a debris can't cross a cell 
+	 * in one step, and the next positions are computed (the integrate pass), then each axis of the move 
+	 * is checked against the static grid (the collision pass).
+	 * A debris entering a wall bounces on it, and a debris entering a trashcan is destroyed.
+	 * @param dt the time step, in seconds.
+	 */
+	void step(float dt) {
+		if (nx.length < px.length) {
+			nx = new float[px.length];
+			ny = new float[px.length];
+		}
+		integrate(dt);
+		collide();
+	}
+	
+	/**
+	 * The integrate pass : clamps the velocities and computes the next positions, without branches.
+	 * @param dt the time step, in seconds.
+	 */
+	private void integrate(float dt) {
+		for (int i = 0; i < size; i++) {
+			vx[i] = Math.max(-MAX_SPEED, Math.min(MAX_SPEED, vx[i]));
+			vy[i] = Math.max(-MAX_SPEED, Math.min(MAX_SPEED, vy[i]));
+			nx[i] = px[i] + vx[i] * dt;
+			ny[i] = py[i] + vy[i] * dt;
+		}
+	}
+	
+	/**
+	 * The collision pass : moves the debris to their next positions, checking each axis against the static grid.
+	 * The debris are visited from the last one, so a destroyed debris is replaced by one already moved.
+	 * The debris at rest are skipped, as they can't enter a wall or a trashcan.
+	 */
+	private void collide() {
+		for (int i = size - 1; i >= 0; i--) {
+			if (vx[i] == 0 && vy[i] == 0)
+				continue;
+			float x = nx[i];
+			byte hit = solidAt(x, py[i]);
+			if (hit == WALL) {
+				vx[i] = -vx[i] * RESTITUTION;
+				x = px[i];
+			}
+			float y = ny[i];
+			if (hit != TRASHCAN)
+				hit = solidAt(x, y);
+			if (hit == WALL) {
+				vy[i] = -vy[i] * RESTITUTION;
+				y = py[i];
+			}
+			if (hit == TRASHCAN) {
+				remove(i);
+				continue;
+			}
+			px[i] = x;
+			py[i] = y;
+		}
+	}
+	
+	private void remove(int i) {
+		size--;
+		px[i] = px[size];
+		py[i] = py[size];
+		vx[i] = vx[size];
+		vy[i] = vy[size];
+	}
+	
+	/**
+	 * Tells if every debris is slower than the given speed.
+	 * @param speed the speed.
+	 * @return true if no debris is faster than speed.
+	 */
+	boolean isSlowerThan(float speed) {
+		float speed2 = speed * speed;
+		for (int i = 0; i < size; i++) {
+			if (vx[i] * vx[i] + vy[i] * vy[i] > speed2)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Adds the state of the debris to the given checksum.
+	 * @param checksum the checksum.
+	 * @return the new checksum.
+	 */
+	long checksum(long checksum) {
+		checksum = 31 * checksum + size;
+		for (int i = 0; i < size; i++) {
+			checksum = 31 * checksum + Float.floatToIntBits(px[i]);
+			checksum = 31 * checksum + Float.floatToIntBits(py[i]);
+		}
+		return checksum;
+	}
+	
+	/**
+	 * Copies the positions of the debris in the given array, as {@code (x, y)} screen positions 
+	 * of the top left corner of the drawn square.
+	 * @param screen the array, of at least 2 * size() floats.
+	 * @return the number of debris copied.
+	 */
+	int copyScreenPositions(float[] screen) {
+		for (int i = 0; i < size; i++) {
+			screen[2 * i] = py[i] - DRAWN_SIZE / 2;
+			screen[2 * i + 1] = px[i] - DRAWN_SIZE / 2;
+		}
+		return size;
+	}
+	
+	/**
+	 * Adds the debris at their current positions to the given batch of green shapes, as small squares. 
+	 * Only the debris inside the given area are added.
+	 * @param batch the batch in which the debris must be added.
+	 * @param area the visible area, in pixels of the game.
+	 */
+	void addTo(ShapeBatch batch, Rectangle area) {
+		for (int i = 0; i < size; i++) {
+			rect.x = py[i] - DRAWN_SIZE / 2;
+			rect.y = px[i] - DRAWN_SIZE / 2;
+			if (rect.intersects(area))
+				batch.addRect(rect.x, rect.y, DRAWN_SIZE, DRAWN_SIZE);
+		}
+	}
+	
+	/**
+	 * Draws the debris overlapping the given cell, at their current positions.
+	 * @param graphics the graphics in which the debris must be drawn.
+	 * @param row the row of the cell.
+	 * @param col the column of the cell.
+	 */
+	void drawCell(Graphics2D graphics, int row, int col) {
+		float x = Sizes.LEFT_MARGIN + row * Sizes.STEP + Sizes.STEP / 2;
+		float y = Sizes.TOP_MARGIN + col * Sizes.STEP + Sizes.STEP / 2;
+		float reach = (Sizes.STEP + DRAWN_SIZE) / 2f;
+		graphics.setColor(Color.GREEN);
+		for (int i = 0; i < size; i++) {
+			if (Math.abs(px[i] - x) < reach && Math.abs(py[i] - y) < reach) {
+				rect.x = py[i] - DRAWN_SIZE / 2;
+				rect.y = px[i] - DRAWN_SIZE / 2;
+				graphics.fill(rect);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the debris of the given screen positions to the given batch of green shapes, as small squares.
+	 * @param batch the batch in which the debris must be added.
+	 * @param screen the screen positions, filled by {@code copyScreenPositions}.
+	 * @param count the number of debris.
+	 * @param area the visible area, in pixels of the game : only the debris inside it are added.
+	 */
+	void addTo(ShapeBatch batch, float[] screen, int count, Rectangle area) {
+		for (int i = 0; i < count; i++) {
+			rect.x = screen[2 * i];
+			rect.y = screen[2 * i + 1];
+			if (rect.intersects(area))
+				batch.addRect(rect.x, rect.y, DRAWN_SIZE, DRAWN_SIZE);
+		}
+	}
+	
+	/**
+	 * Returns a copy of the solver, with the same debris. The static grid is shared.
+	 * @return the copy.
+	 */
+	DebrisSolver copy() {
+		DebrisSolver copy = new DebrisSolver();
+		copy.px = Arrays.copyOf(px, size);
+		copy.py = Arrays.copyOf(py, size);
+		copy.vx = Arrays.copyOf(vx, size);
+		copy.vy = Arrays.copyOf(vy, size);
+		copy.size = size;
+		copy.solid = solid;
+		copy.length = length;
+		copy.width = width;
+		return copy;
+	}
+	
+	/**
+	 * Puts back the debris of the given copy.
+	 * @param saved the copy made by {@code copy}.
+	 */
+	void restore(DebrisSolver saved) {
+		if (px.length < saved.size) {
+			px = new float[saved.size];
+			py = new float[saved.size];
+			vx = new float[saved.size];
+			vy = new float[saved.size];
+		}
+		System.arraycopy(saved.px, 0, px, 0, saved.size);
+		System.arraycopy(saved.py, 0, py, 0, saved.size);
+		System.arraycopy(saved.vx, 0, vx, 0, saved.size);
+		System.arraycopy(saved.vy, 0, vy, 0, saved.size);
+		size = saved.size;
+	}
+}
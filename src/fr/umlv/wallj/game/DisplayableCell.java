@@ -1,5 +1,6 @@
 package fr.umlv.wallj.game;
 
+import java.awt.Color;
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
 import java.util.Objects;
@@ -18,6 +19,7 @@ import fr.umlv.wallj.display.Displayable;
  * The {@code (x, y)} fields are the position of the cell in the board.
  * The {@code type} field of the cell is used to know the type of the cell : a Wall, a Garbage, a Trashcan or an Empty cell.
  * The {@code body} field is the body used by JBox2D to manage physic of the cell.
+ * The {@code rect} field is the square drawn for the cell, moved at each draw rather than created.
  * @author Sevrin Gosset - Denis Biguenet
  */
 abstract class DisplayableCell implements Cell, Displayable {
@@ -27,6 +29,7 @@ abstract class DisplayableCell implements Cell, Displayable {
 	private final int y;
 	private int type;
 	private final Body body;
+	private final Rectangle2D.Float rect = new Rectangle2D.Float(0, 0, Sizes.STEP, Sizes.STEP);
 	
 	DisplayableCell(int x, int y, int type, Body body) {
 		if (x < 0 || y < 0) {
@@ -38,18 +41,19 @@ abstract class DisplayableCell implements Cell, Displayable {
 		this.body = body;
 	}
 	
-	static Body initializeBody(World world, int x, int y, BodyType type, int cellType) {
+	static Body initializeBody(World world, int x, int y, BodyType type, CollisionCategory category) {
 		BodyDef bodyDef = new BodyDef();
 		bodyDef.position.set(Sizes.LEFT_MARGIN + x * Sizes.STEP + Sizes.STEP / 2, Sizes.TOP_MARGIN + y * Sizes.STEP + Sizes.STEP / 2);
 		bodyDef.type = type;
 		PolygonShape shape = new PolygonShape();	
 		shape.setAsBox(Sizes.STEP / 2,  Sizes.STEP / 2);
 		Body body = world.createBody(bodyDef);
-		body.setUserData(cellType);
+		body.setUserData(category);
 		FixtureDef fixDef = new FixtureDef();
 		fixDef.density = 1;
 		fixDef.shape = shape;
 		fixDef.restitution = 0.85f;
+		category.applyTo(fixDef);
 		body.createFixture(fixDef);
 		return body;
 	}
@@ -79,8 +83,30 @@ abstract class DisplayableCell implements Cell, Displayable {
 		return type + " : (" + x + ", " + y + ")";
 	}
 	
+	/**
+	 * Returns the color in which the cell is drawn.
+	 * @return the color of the cell.
+	 */
+	abstract Color color();
+	
+	/**
+	 * Returns the square of the cell, at the position of its body.
+	 * @return the shape.
+	 */
 	Shape shape() {
-		return new Rectangle2D.Float(body.getPosition().y - Sizes.STEP / 2, body.getPosition().x  - Sizes.STEP / 2, Sizes.STEP, Sizes.STEP);
+		return shape(body.getPosition().y - Sizes.STEP / 2, body.getPosition().x  - Sizes.STEP / 2);
+	}
+	
+	/**
+	 * Returns the square of the cell, moved to the given position on the screen.
+	 * @param x the abscissa of the square on the screen.
+	 * @param y the ordinate of the square on the screen.
+	 * @return the shape.
+	 */
+	Shape shape(float x, float y) {
+		rect.x = x;
+		rect.y = y;
+		return rect;
 	}
 	
 	/**
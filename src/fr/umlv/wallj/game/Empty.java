@@ -2,7 +2,6 @@ package fr.umlv.wallj.game;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.geom.Rectangle2D;
 
 /**
  * Empty is a cell where the elements can move. Empty cells doesn't have body. 
@@ -31,7 +30,12 @@ public class Empty extends DisplayableCell{
 	 * @param graphics the graphics context.
 	 */
 	public void draw(Graphics2D graphics) {
-	    graphics.setColor(Color.WHITE);
-	    graphics.fill(new Rectangle2D.Float(getY() * Sizes.STEP + Sizes.LEFT_MARGIN, getX() * Sizes.STEP + Sizes.TOP_MARGIN, Sizes.STEP, Sizes.STEP));
+	    graphics.setColor(color());
+	    graphics.fill(shape(getY() * Sizes.STEP + Sizes.LEFT_MARGIN, getX() * Sizes.STEP + Sizes.TOP_MARGIN));
+	}
+	
+	@Override
+	Color color() {
+		return Color.WHITE;
 	}
 }
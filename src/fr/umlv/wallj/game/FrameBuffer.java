@@ -0,0 +1,44 @@
+package fr.umlv.wallj.game;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free triple buffer of frames between the physics thread and the render thread. 
+ * Each thread owns one frame, and the third one, the most recent published frame, is in {@code shared}.
+ * The physics thread swaps its filled frame with the shared one, and the render thread swaps its frame 
+ * with the shared one only if the shared one is more recent. No thread ever waits for the other one, 
+ * and a frame is never written while it is drawn.
+ * @author Severin Gosset - Denis Biguenet
+ */
+class FrameBuffer {
+	private final AtomicReference<PhysicsFrame> shared;
+	
+	/**
+	 * Creates a new buffer, with the given frame as the first shared frame.
+	 * @param frame the first shared frame.
+	 */
+	FrameBuffer(PhysicsFrame frame) {
+		shared = new AtomicReference<>(Objects.requireNonNull(frame));
+	}
+	
+	/**
+	 * Publishes a filled frame. Called by the physics thread.
+	 * @param written the frame just filled.
+	 * @return the frame the physics thread must fill next.
+	 */
+	PhysicsFrame publish(PhysicsFrame written) {
+		return shared.getAndSet(written);
+	}
+	
+	/**
+	 * Returns the most recent published frame. Called by the render thread.
+	 * @param current the frame the render thread drew last.
+	 * @return the most recent frame, which is current if nothing was published since.
+	 */
+	PhysicsFrame latest(PhysicsFrame current) {
+		if (shared.get().tick <= current.tick)
+			return current;
+		return shared.getAndSet(current);
+	}
+}
@@ -1,15 +1,21 @@
 package fr.umlv.wallj.game;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Hashtable;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.World;
 
 import fr.umlv.wallj.display.Displayer;
+import fr.umlv.wallj.display.EventSource;
+import fr.umlv.wallj.display.FrameCapture;
+import fr.umlv.wallj.display.RenderScheduler;
 import fr.umlv.wallj.pathfinding.Node;
 import fr.umlv.wallj.pathfinding.Path;
+import fr.umlv.wallj.replay.Session;
 import fr.umlv.zen5.ApplicationContext;
 import fr.umlv.zen5.KeyboardKey;
 
@@ -17,8 +23,30 @@ import fr.umlv.zen5.KeyboardKey;
  * The main class of the game. It contains everything needed in the game, and its methods.
  * The {@code level} field is the number of the current level.
  * The {@code board} field is the current board of the game. It has the grid and the Jbox2D world.
- * The {@code disp} field is the displayer of the game, that will draw evrything of the game.
- * The {@code path} field is the the path between the player and its destination.
+ * The {@code disp} field is the displayer of the game, that will draw evrything of the game. 
+ * It is null if the game runs without display.
+ * The {@code renders} field coalesces the renders of the board, so it is drawn at most once per refresh of the screen. 
+ * It is created with the first displayer.
+ * The {@code capture} field draws the frames offscreen, with or without display, or is null if the game is not captured. 
+ * Like the renders, the captures are coalesced : {@code captureRequested} tells if a frame was requested since the last capture, 
+ * and {@code capturedPath} is the path to draw with it.
+ * The {@code events} field is the source of the events of the user : 
+ * the displayer, or the session when one is recorded or replayed.
+ * The {@code session} field is the session which records or replays the game, or null if there is none.
+ * The {@code levels} field is the source of the levels, the levels directory by default.
+ * The {@code ticks} field is the number of physics ticks run by the game.
+ * The {@code threadedPhysics} field tells if the physics phase runs on its own thread. 
+ * In this case, the {@code physicsLoop} runs in the {@code physicsThread}, and publishes its frames
+ * in the {@code frames} buffer, while the main thread draws the {@code renderedFrame}.
+ * The {@code timeScale} field is the index in {@code TIME_SCALES} of the number of physics ticks run per rendered frame, 
+ * so the physics phase can be fast-forwarded. 
+ * The {@code stepBudget} field is the budget of the physics ticks of a frame, in milliseconds, 0 to always step with the full quality.
+ * The {@code shardPool} field is the pool in which the regions of a level are stepped in parallel, 
+ * or null if each level is stepped in one world.
+ * A game has its own board and world, so many games can run at the same time, each in its own thread.
+ * The {@code path} field is the the path between the player and its destination, null when the player doesn't walk.
+ * The {@code walk} field is the walk of the player along the path, advanced at each frame of the planning phase, 
+ * and {@code lastWalkTime} is the time of its last advance.
  * The {@code keyboardKeyMap} field is the map of key used for the keyboard events.
  * The {@code victory} fields tell if the game is currently won.
  * The {@code pos} field is the current position of the player.
@@ -27,10 +55,29 @@ import fr.umlv.zen5.KeyboardKey;
  * @author Severin Gosset - Denis Biguenet
  */
 public class Game {
+	private final static int[] TIME_SCALES = { 1, 2, 4, 16 };
 	private int level;
 	private Board board;
 	private Displayer disp;
+	private RenderScheduler renders;
+	private FrameCapture capture;
+	private boolean captureRequested;
+	private Path capturedPath;
+	private EventSource events;
+	private Session session;
+	private LevelSource levels;
+	private long ticks;
+	private boolean threadedPhysics;
+	private ForkJoinPool shardPool;
+	private long stepBudget;
+	private int timeScale;
+	private PhysicsLoop physicsLoop;
+	private Thread physicsThread;
+	private FrameBuffer frames;
+	private PhysicsFrame renderedFrame;
 	private Path path;
+	private Walk walk;
+	private long lastWalkTime;
 	private final Hashtable<Integer, KeyboardKey> keyboardKeyMap;
 	private boolean victory;
 	private Node pos;
@@ -45,6 +92,7 @@ public class Game {
 		keyboardKeyMap.put(KeyboardKey.F.ordinal(), KeyboardKey.F);
 		keyboardKeyMap.put(KeyboardKey.UP.ordinal(), KeyboardKey.UP);
 		keyboardKeyMap.put(KeyboardKey.DOWN.ordinal(), KeyboardKey.DOWN);
+		levels = Board::readLevel;
 	}
 	
 	/**
@@ -54,151 +102,536 @@ public class Game {
 	 * @throws IOException if the next level doesn't exisrs, or another IOException occurs.
 	 */
 	public void nextLevel(int level, ApplicationContext context) throws IOException {
-		board = Board.initializeBoard(level, new World(new Vec2(0, 0)));
+		board = newBoard(level);
 		disp = new Displayer(board, Objects.requireNonNull(context));
+		if (renders == null)
+			renders = new RenderScheduler();
+		renders.setDisplayer(disp);
+		events = disp;
+		if (session != null)
+			events = session.startLevel(level, disp);
 		victory = false;
 		this.level = level;
 	}
 	
+	/**
+	 * Initialize the next level of the game without display. The events are then given by the session.
+	 * @param level the number of the current level.
+	 * @throws IOException if the next level doesn't exisrs, or another IOException occurs.
+	 */
+	public void nextLevel(int level) throws IOException {
+		Objects.requireNonNull(session, "a game without display needs a session to get its events !");
+		board = newBoard(level);
+		disp = null;
+		if (renders != null)
+			renders.setDisplayer(null);
+		events = session.startLevel(level, null);
+		victory = false;
+		this.level = level;
+	}
+	
+	/**
+	 * Creates the board of a level, with sharded physics if there is a shard pool.
+	 * @param level the number of the level.
+	 * @return the new board.
+	 * @throws IOException if the level doesn't exisrs, or another IOException occurs.
+	 * @throws IllegalStateException if the session was recorded in the other physics mode.
+	 */
+	private Board newBoard(int level) throws IOException {
+		if (session != null && session.isSharded() != (shardPool != null))
+			throw new IllegalStateException("the session is played " + (session.isSharded() ? "with" : "without") 
+					+ " sharded physics, the game must be too");
+		Board board;
+		if (shardPool != null)
+			board = Board.initializeBoard(levels.load(level), new World(new Vec2(0, 0)), shardPool);
+		else
+			board = Board.initializeBoard(levels.load(level), new World(new Vec2(0, 0)));
+		if (stepBudget > 0 && session == null)
+			board.setStepGovernor(new StepGovernor(stepBudget * 1000000));
+		board.getStepGovernor().setTicksPerFrame(TIME_SCALES[timeScale]);
+		return board;
+	}
+	
+	/**
+	 * Sets the session which records or replays the game. It is used from the next level.
+	 * @param session the session, or null to play without session.
+	 */
+	public void setSession(Session session) {
+		this.session = session;
+	}
+	
+	/**
+	 * Sets the source of the levels. It is used from the next level.
+	 * @param levels the source of the levels.
+	 */
+	public void setLevelSource(LevelSource levels) {
+		this.levels = Objects.requireNonNull(levels);
+	}
+	
+	/**
+	 * Sets if the physics phase must run on its own thread, so the rendering and the physics overlap.
+	 * It is only used when the game has a display and no session, as a session needs the physics ticks 
+	 * and the events to happen in the same order each time.
+	 * @param threadedPhysics true to run the physics on its own thread.
+	 */
+	public void setThreadedPhysics(boolean threadedPhysics) {
+		this.threadedPhysics = threadedPhysics;
+	}
+	
+	/**
+	 * Sets the budget of the physics ticks of a frame : when the steps are too long, their quality is lowered to stay in the budget.
+	 * The ticks of a frame share the budget, so the faster the time scale, the smaller the budget of a tick.
+	 * It is used from the next level, and only without session, as a session needs the same steps each time.
+	 * @param stepBudget the budget in milliseconds, or 0 to always step with the full quality.
+	 */
+	public void setStepBudget(long stepBudget) {
+		this.stepBudget = stepBudget;
+	}
+	
+	/**
+	 * Returns the governor of the steps of the current level, with its metrics.
+	 * @return the governor.
+	 */
+	public StepGovernor getStepGovernor() {
+		return board.getStepGovernor();
+	}
+	
+	/**
+	 * Sets the pool in which the regions of the levels are stepped in parallel, each in its own world.
+	 * It is used from the next level. The sharded physics doesn't give exactly the same results as one world, 
+	 * so a session must be replayed with the same mode as it was recorded : a level of a session played in the other mode isn't started.
+	 * @param shardPool the pool, or null to step each level in one world.
+	 */
+	public void setShardPool(ForkJoinPool shardPool) {
+		this.shardPool = shardPool;
+	}
+	
+	/**
+	 * Sets the capture drawing the frames of the game offscreen, so a game without display can be captured. 
+	 * The game doesn't close the capture.
+	 * @param capture the capture, or null to stop capturing.
+	 */
+	public void setCapture(FrameCapture capture) {
+		this.capture = capture;
+		captureRequested = false;
+		capturedPath = null;
+	}
+	
+	/**
+	 * Returns the number of physics ticks run by the game since its creation.
+	 * @return the number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	
+	/**
+	 * Plays the current level : places the player, lets the user place the bombs, runs the physics, 
+	 * and ends the game.
+	 * @return if the level is won.
+	 */
+	public boolean playLevel() {
+		if (board.isPlayerPlaced()) {
+			if (disp != null)
+				disp.drawInterface(level);
+			render(null);
+		}
+		else
+			setFirstPlayerPos();
+		while(refresh()) {
+			/* Waiting for the game to be played, stops when 'F' is pressed */
+		}
+		setPhysics();
+		while(physics()) {
+			/* Waiting for the physics to be done : either there is no more garbage, 
+			 * or the user presses a keyboard button
+			 */
+		}
+		return endGame();
+	}
+	
+	/**
+	 * Requests a new frame, if the game has a display or a capture. The frame is drawn by the next {@code present}.
+	 * @param path the path to draw. If it's null, only the board will be drawn.
+	 */
+	private void render(Path path) {
+		if (disp != null)
+			renders.request(path);
+		if (capture != null) {
+			captureRequested = true;
+			capturedPath = path;
+		}
+	}
+	
+	/**
+	 * Draws the requested frame, if the game has a display and the last frame is old enough. 
+	 * The requested frame is always captured, as the capture doesn't depend on the screen.
+	 */
+	private void present() {
+		if (disp != null)
+			renders.present();
+		if (captureRequested) {
+			captureRequested = false;
+			capture.capture(board, capturedPath);
+			capturedPath = null;
+		}
+	}
+	
+	/**
+	 * Waits the next event while the game is idle, at most until the requested frame must be drawn, 
+	 * so the game sleeps instead of polling the events while the user thinks.
+	 * @return the event, as given by the source of events.
+	 */
+	private int waitIdleEvent() {
+		long timeout = Sizes.IDLE_WAIT;
+		if (disp != null) {
+			long left = renders.timeToPresent();
+			if (left >= 0)
+				timeout = Math.max(1, left);
+		}
+		return events.waitEvent(timeout);
+	}
+	
+	/**
+	 * Returns the render scheduler of the game, with the number of drawn frames and suppressed renders.
+	 * @return the render scheduler, or null if the game never had a display.
+	 */
+	public RenderScheduler getRenderScheduler() {
+		return renders;
+	}
+	
+	/**
+	 * Waits the given time, unless the session runs at full speed.
+	 * @param millis the time to wait, in milliseconds.
+	 */
+	private void sleep(long millis) {
+		if (millis <= 0 || (session != null && !session.isRealTime()))
+			return;
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			// Since main is the only thread, there should not be any InterruptedEcxeption
+			e.printStackTrace();
+		}
+	}
+	
 	/**
 	 * Sets the position of the player, when it is not on the board. Waits a click and places the player in the position.
 	 */
 	public void setFirstPlayerPos() {
-		disp.drawInterface(level);
-		disp.render(null);
+		if (disp != null)
+			disp.drawInterface(level);
+		render(null);
 		do {
-			while((disp.waitEvent() != -1)) {
+			while((waitIdleEvent() != -1)) {
 				/* Waiting for a click, to set the position */
+				if (disp != null && disp.hasCameraMoved())
+					render(null);
+				present();
 			}
-			board.setPlayerPos(disp.getXClick(), disp.getYClick());
+			board.setPlayerPos(events.getXClick(), events.getYClick());
 		} while(!board.getContentAtPlayer().isEmpty());
-		disp.render(null);
+		render(null);
 	}
 	
 	/**
-	 * Moves the player between its current location and the position of the click, if it's possible. 
-	 * Draws the path while doing so.
+	 * Starts the walk of the player between its current location and the position of the click, if it's possible. 
+	 * If the player was already walking, it goes to the new destination from the cell it has reached.
+	 * The walk is then advanced by {@code walk} at each frame, so the events are still handled meanwhile.
 	 */
 	private void move(){
 		pos = new Node(board.getPlayer().getX(), board.getPlayer().getY(), null);
-		path = Node.shortestWay(board, dest, pos);
-		if (path != null) {
-			Node next = path.next();
-			while(next != null) {
-				long t0 = System.nanoTime();
-				disp.render(path);
-				board.getPlayer().moveOneCell(next);
-				long t1 = System.nanoTime() - t0;
-				try {
-					Thread.sleep(Sizes.LOOP_TIME - t1/1000000);
-				} catch (InterruptedException e) {
-					// Since main is the only thread, there should not be any InterruptedEcxeption
-					e.printStackTrace();
-				}
-				next = path.next();
-			}
-			board.setPlayerPos(dest.getX(), dest.getY());
+		Path newPath = Node.shortestWay(board, dest, pos);
+		if (newPath != null) {
+			if (walk == null)
+				lastWalkTime = System.nanoTime();
+			walk = new Walk(board.getPlayer(), newPath, walk);
+			path = newPath;
 		}
 		dest = null;
 	}
 	
+	/**
+	 * Advances the walk of the player by the time elapsed since the last frame, and draws the path. 
+	 * When the game is recorded or replayed, each frame is one tick of {@code LOOP_TIME}, 
+	 * so the player is at the same position at each tick of the replay.
+	 */
+	private void walk() {
+		long now = System.nanoTime();
+		long elapsed = session == null ? now - lastWalkTime : Walk.CELL_TIME;
+		lastWalkTime = now;
+		if (walk.advance(elapsed))
+			stopWalk();
+		render(path);
+	}
+	
+	/**
+	 * Stops the walk of the player, if it walks : it stays in the cell it has reached.
+	 */
+	private void stopWalk() {
+		if (walk != null)
+			walk.stop();
+		walk = null;
+		path = null;
+	}
+	
+	/**
+	 * Waits the next event while the player walks, at most until the next frame of the walk. 
+	 * When the game is recorded or replayed, the events are polled once per frame instead, so a frame is always one tick.
+	 * @return the event, as given by the source of events.
+	 */
+	private int waitWalkEvent() {
+		long left = Sizes.LOOP_TIME - (System.nanoTime() - lastWalkTime) / 1000000;
+		if (session != null) {
+			sleep(left);
+			return events.waitEvent();
+		}
+		return events.waitEvent(Math.max(1, left));
+	}
+	
 	/**
 	 * Runs once the main loop of the first part of the game. Waits an event : 
 	 * if it's a click, moves the player to the position, 
 	 * if it's 'B', drops a Bomb,
 	 * if it's 'F', triggers all the bombs.
+	 * While the player walks, the events are handled the same way, and the walk is advanced at each call : 
+	 * a bomb is dropped in the cell reached by the player, and a new click changes its destination.
 	 * @return false if the loop must be stopped (the user pressed 'F'), true if not
 	 */
 	public boolean refresh() {
+		present();
 		dest = null;
 		int res;
-		res = disp.waitEvent();
+		res = walk == null ? waitIdleEvent() : waitWalkEvent();
 		if(res >= 0) {
-			disp.render(null);
+			render(path);
 			KeyboardKey pressedKey = keyboardKeyMap.get(res);
 			if(pressedKey != null) {
 				switch(pressedKey) {
 					case B : {
 						board.dropBomb();
-						disp.render(null);
-						return true;
+						render(path);
+						break;
 					}
 					case F : {
-						disp.render(null);
+						stopWalk();
+						render(null);
 						return false;
 					}
 					case UP : {
 						
 						board.setTimeLeft(true);
-						disp.render(null);
-						return true;
+						render(path);
+						break;
 					}
 					case DOWN : {
 						board.setTimeLeft(false);
-						disp.render(null);
-						return true;
+						render(path);
+						break;
 					}
 					default : throw new IllegalStateException("key found in the hashtable, but not found with the switch.");
 				}
 			}
-			return true;
 		}		
+		else if(res == -2 && disp != null && disp.hasCameraMoved()) {
+			render(path);
+		}
 		else if(res == -1) {
-			int x = disp.getXClick();
-			int y = disp.getYClick();
+			int x = events.getXClick();
+			int y = events.getYClick();
 			if (board.getContent(y, x).isEmpty())
 				dest = new Node(x, y, null);
 		}
 				
-		if (dest != null) {
+		if (dest != null)
 			move();
-			disp.render(null);
-		}
+		if (walk != null)
+			walk();
 		return true;
 	}
 	
 	/**
 	 * Runs once the main loop of the second partof the game. Launches the physic :
+	 * Runs as many physics ticks as the time scale, and then draws the board once, 
+	 * so the intermediate ticks are not drawn when the physics is fast-forwarded.
+	 * @return if the loop must continue.
+	 */
+	public boolean physics() {
+		if (physicsLoop != null)
+			return renderPhysics();
+		//One call of the function must be exactly Sizes.LOOP_TIME long
+		long t0 = System.nanoTime();
+		for (int i = 0; i < TIME_SCALES[timeScale]; i++) {
+			if (!physicsTick()) {
+				render(null);
+				return endPhysics();
+			}
+		}
+		render(null);
+		present();
+		long t1 = System.nanoTime() - t0;
+		sleep(Sizes.LOOP_TIME - t1/1000000);
+		return true;
+	}
+	
+	/**
+	 * Runs one physics tick : 
 	 * Run the Bomb and the world.
 	 * Destroy all the garbage that hit a trashcan.
 	 * May also takes an event :
 	 * If all the garbages are gone, stops the loop and set victory flag to true.
-	 * If the user press a keyboard button, stops the loop.
-	 * Else, does not stop the loop.
+	 * If the world has settled with garbages left, stops the loop : the level is lost.
+	 * If the user press UP or DOWN, the time scale is changed.
+	 * If the user press another keyboard button, stops the loop.
+	 * Else, does not stop the loop. 
+	 * An event is taken at each tick, whatever the time scale, so a session replays the same ticks.
 	 * @return if the loop must continue.
 	 */
-	public boolean physics() {
-		//One call of the function must be exactly Sizes.LOOP_TIME long
-		long t0 = System.nanoTime();
+	private boolean physicsTick() {
+		ticks++;
 		board.runBomb();
 		board.worldStep();
 		board.destroyGarbage();
-		disp.render(null);
 		if(board.isWon()) {
 			victory = true;
 			return false;
 		}
-		if (disp.waitEvent() > 0) {
+		if(board.isSettled()) {
+			return false;
+		}
+		return !physicsEvent(events.waitEvent());
+	}
+	
+	/**
+	 * Handles an event taken during the physics phase : UP and DOWN makes the physics faster or slower, 
+	 * and the other keys end the physics phase.
+	 * @param res the event.
+	 * @return true if the physics phase must end.
+	 */
+	private boolean physicsEvent(int res) {
+		if (res == KeyboardKey.UP.ordinal()) {
+			setTimeScale(TIME_SCALES[Math.min(timeScale + 1, TIME_SCALES.length - 1)]);
+			return false;
+		}
+		if (res == KeyboardKey.DOWN.ordinal()) {
+			setTimeScale(TIME_SCALES[Math.max(timeScale - 1, 0)]);
 			return false;
 		}
+		return res > 0;
+	}
+	
+	/**
+	 * Sets the number of physics ticks run per rendered frame : 1, 2, 4 or 16. 
+	 * The bombs count down the simulated time, so they explode after the same ticks whatever the time scale.
+	 * It can also be changed during the physics phase with the UP and DOWN keys.
+	 * @param scale the time scale.
+	 */
+	public void setTimeScale(int scale) {
+		for (int i = 0; i < TIME_SCALES.length; i++) {
+			if (TIME_SCALES[i] == scale) {
+				timeScale = i;
+				if (board != null)
+					board.getStepGovernor().setTicksPerFrame(scale);
+				if (physicsLoop != null)
+					physicsLoop.setTimeScale(scale);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("unsupported time scale : " + scale);
+	}
+	
+	/**
+	 * Runs once the render loop of the second part of the game, when the physics runs on its own thread.
+	 * Draws the last frame published by the physics thread, and stops the loop if the physics has ended 
+	 * or if the user pressed a keyboard button.
+	 * @return if the loop must continue.
+	 */
+	private boolean renderPhysics() {
+		long t0 = System.nanoTime();
+		boolean finished = physicsLoop.isFinished();
+		renderedFrame = frames.latest(renderedFrame);
+		disp.renderFrame(renderedFrame);
+		if (capture != null)
+			capture.capture(renderedFrame);
+		if (!finished && physicsEvent(events.waitEvent())) {
+			physicsLoop.stop();
+			finished = true;
+		}
+		if (finished) {
+			joinPhysics();
+			return endPhysics();
+		}
 		long t1 = System.nanoTime() - t0;
+		sleep(Sizes.LOOP_TIME - t1/1000000);
+		return true;
+	}
+	
+	/**
+	 * Waits for the end of the physics thread, and gets back the results of the physics phase.
+	 * If a tick of the physics thread threw an exception, it is rethrown here.
+	 */
+	private void joinPhysics() {
 		try {
-			if (Sizes.LOOP_TIME - t1/1000000 > 0l)
-				Thread.sleep(Sizes.LOOP_TIME - t1/1000000);
+			physicsThread.join();
 		} catch (InterruptedException e) {
-			// Since main is the only thread, there should not be any InterruptedEcxeption
+			// Since main is the only thread waiting the physics thread, there should not be any InterruptedEcxeption
 			e.printStackTrace();
 		}
-		return true;
+		victory = physicsLoop.isWon();
+		ticks += physicsLoop.getTicks();
+		Throwable failure = physicsLoop.getFailure();
+		physicsLoop = null;
+		physicsThread = null;
+		frames = null;
+		renderedFrame = null;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+	}
+	
+	/**
+	 * Ends the physics phase, giving the checksum of the board to the session if there is one.
+	 * @return false, as the physics loop must be stopped.
+	 */
+	private boolean endPhysics() {
+		if (session != null) {
+			try {
+				session.endPhysics(board.checksum());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Replays the current level from the start of its last physics phase, with the same bombs and player position.
+	 * The level is restored in memory, without rebuilding the board nor the world.
+	 */
+	public void retry() {
+		board.restoreCheckpoint();
+		victory = false;
+		stopWalk();
 	}
 	
 	/**
 	 * Sets up the physic of the game :
-	 * Remove the garbage from the board's grid
+	 * Saves a checkpoint of the level and remove the garbage from the board's grid
 	 */
 	public void setPhysics() {
+		board.saveCheckpoint();
 		board.removeGarbage();
 		board.setPhysics();
+		if (threadedPhysics && disp != null && session == null) {
+			renderedFrame = board.newFrame();
+			frames = new FrameBuffer(board.newFrame());
+			physicsLoop = new PhysicsLoop(board, frames, board.newFrame());
+			physicsLoop.setTimeScale(TIME_SCALES[timeScale]);
+			physicsThread = new Thread(physicsLoop, "physics");
+			physicsThread.setDaemon(true);
+			physicsThread.start();
+		}
 	}
 	
 	/**
@@ -206,6 +639,7 @@ public class Game {
 	 * @return if game is won.
 	 */
 	public boolean endGame() {
+		present();
 		String[] endMessage = new String[2];
 		if (victory) {
 			endMessage[0] = "VICTORY !";
@@ -215,8 +649,9 @@ public class Game {
 			endMessage[0] = "DEFEAT !";
 			endMessage[1] = "Press any key to replay level";
 		}
-		disp.drawMessage(endMessage);
-		while(disp.waitEvent() == -2) {
+		if (disp != null)
+			disp.drawMessage(endMessage);
+		while(waitIdleEvent() == -2) {
 			// Waiting for the user to leave the game.
 		}
 		return victory;
@@ -7,11 +7,10 @@ import org.jbox2d.dynamics.Body;
 
 /**
  * Garbage is the element that the player must destroy to win.
- * The {@code DESTROY} field is the constant telling that a garbage must be destroyed, and placed in Body.userData.
+ * A garbage that must be destroyed is tagged {@code CollisionCategory.DESTROYED} in Body.userData.
  * @author Severin Gosset - Denis Biguenet.
  */
 public class Garbage extends DisplayableCell {
-	public static final int DESTROY = -1;
 	/**
 	 * Creates a new garbage.
 	 * @param x the x of the garbage
@@ -35,7 +34,12 @@ public class Garbage extends DisplayableCell {
 	 * @param graphics the graphics context.
 	 */
 	public void draw(Graphics2D graphics) {
-		graphics.setColor(Color.GREEN);
+		graphics.setColor(color());
 	    graphics.fill(shape());
 	}
+	
+	@Override
+	Color color() {
+		return Color.GREEN;
+	}
 }
@@ -0,0 +1,156 @@
+package fr.umlv.wallj.game;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+
+/**
+ * A spatial hash of the garbages of a board, at the granularity of the cells of the grid.
+ * It answers the "garbages near this point" and "garbages in this area" queries without scanning every garbage.
+ * The garbages are rebuilt in the hash after each step of the world, so it reflects the last step.
+ * The garbages of a bucket are chained in arrays :
+ * The {@code heads} field is, for each bucket, the index of its first garbage, or -1 if the bucket is empty.
+ * The {@code next} field is, for each garbage, the index of the next garbage of its bucket, or -1.
+ * The {@code xs, ys} fields are the positions of the garbages in the world, and {@code rows, cols} their cells.
+ * The number of buckets is a power of two, at least twice the number of garbages, so chains stay short.
+ * The {@code indexer} consumer adds a garbage to the hash : it is created once, 
+ * and given to {@code forEach} instead of iterating the garbages, so a rebuild doesn't allocate.
+ * Rows and columns are computed like in {@code DisplayableCell.initializeBody} : 
+ * the abscissa of a body in the world is its row, and its ordinate is its column.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class GarbageGrid {
+	private Garbage[] garbages = new Garbage[0];
+	private float[] xs = new float[0];
+	private float[] ys = new float[0];
+	private int[] rows = new int[0];
+	private int[] cols = new int[0];
+	private int[] next = new int[0];
+	private int[] heads = new int[16];
+	private int size;
+	private final Consumer<DisplayableCell> indexer = this::index;
+	
+	/**
+	 * Rebuilds the hash from the given garbages. The garbages waiting to be destroyed are not indexed.
+	 * @param cells the garbages of the board.
+	 */
+	void update(Collection<DisplayableCell> cells) {
+		ensureCapacity(cells.size());
+		Arrays.fill(heads, -1);
+		int previous = size;
+		size = 0;
+		cells.forEach(indexer);
+		Arrays.fill(garbages, size, previous > size ? previous : size, null);
+	}
+	
+	private void index(DisplayableCell cell) {
+		Body body = cell.getBody();
+		if (CollisionCategory.of(body) != CollisionCategory.GARBAGE)
+			return;
+		Vec2 position = body.getPosition();
+		int i = size++;
+		garbages[i] = (Garbage) cell;
+		xs[i] = position.x;
+		ys[i] = position.y;
+		rows[i] = row(position.x);
+		cols[i] = col(position.y);
+		int bucket = bucket(rows[i], cols[i]);
+		next[i] = heads[bucket];
+		heads[bucket] = i;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (capacity > garbages.length) {
+			garbages = Arrays.copyOf(garbages, capacity);
+			xs = new float[capacity];
+			ys = new float[capacity];
+			rows = new int[capacity];
+			cols = new int[capacity];
+			next = new int[capacity];
+		}
+		if (heads.length < capacity * 2) {
+			heads = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+		}
+	}
+	
+	private static int row(float x) {
+		return (int) Math.floor((x - Sizes.LEFT_MARGIN) / Sizes.STEP);
+	}
+	
+	private static int col(float y) {
+		return (int) Math.floor((y - Sizes.TOP_MARGIN) / Sizes.STEP);
+	}
+	
+	private int bucket(int row, int col) {
+		int h = row * 0x9E3779B1 + col * 0x85EBCA77;
+		return (h ^ (h >>> 16)) & (heads.length - 1);
+	}
+	
+	/**
+	 * Returns the number of garbages in the hash.
+	 * @return the number of garbages.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Gives to the action each garbage whose cell is inside the given area of the grid, bounds included.
+	 * If the area has more cells than there are garbages, all the garbages are checked instead.
+	 * @param minRow the first row of the area.
+	 * @param minCol the first column of the area.
+	 * @param maxRow the last row of the area.
+	 * @param maxCol the last column of the area.
+	 * @param action the action to apply to the garbages.
+	 */
+	public void forEachInRange(int minRow, int minCol, int maxRow, int maxCol, Consumer<? super Garbage> action) {
+		forEachIn(minRow, minCol, maxRow, maxCol, 0, 0, Float.POSITIVE_INFINITY, action);
+	}
+	
+	/**
+	 * Gives to the action each garbage whose center is at most at the given distance of the given point of the world, 
+	 * at the last update of the hash.
+	 * @param x the abscissa of the point in the world.
+	 * @param y the ordinate of the point in the world.
+	 * @param radius the distance, in the units of the world.
+	 * @param action the action to apply to the garbages.
+	 */
+	public void forEachInRadius(float x, float y, float radius, Consumer<? super Garbage> action) {
+		forEachIn(row(x - radius), col(y - radius), row(x + radius), col(y + radius), x, y, radius * radius, action);
+	}
+	
+	/**
+	 * Gives to the action each garbage whose cell is inside the given area of the grid, bounds included, 
+	 * and whose center is at most at the given distance of the given point, as it was at the last update. 
+	 * The distance is checked while walking the cells, so a query doesn't allocate.
+	 * @param radius2 the square of the distance, infinite to give all the garbages of the area.
+	 */
+	private void forEachIn(int minRow, int minCol, int maxRow, int maxCol, float x, float y, float radius2, Consumer<? super Garbage> action) {
+		if (minRow > maxRow || minCol > maxCol)
+			return;
+		if ((long) (maxRow - minRow + 1) * (maxCol - minCol + 1) > size) {
+			for (int i = 0; i < size; i++) {
+				if (rows[i] >= minRow && rows[i] <= maxRow && cols[i] >= minCol && cols[i] <= maxCol && isInRadius(i, x, y, radius2))
+					action.accept(garbages[i]);
+			}
+			return;
+		}
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				for (int i = heads[bucket(row, col)]; i != -1; i = next[i]) {
+					if (rows[i] == row && cols[i] == col && isInRadius(i, x, y, radius2))
+						action.accept(garbages[i]);
+				}
+			}
+		}
+	}
+	
+	private boolean isInRadius(int i, float x, float y, float radius2) {
+		float dx = xs[i] - x;
+		float dy = ys[i] - y;
+		return dx * dx + dy * dy <= radius2;
+	}
+}
@@ -0,0 +1,21 @@
+package fr.umlv.wallj.game;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A LevelSource gives the lines of a level from its number. By default, the levels are read 
+ * from the levels directory with {@code Board.readLevel}, but a source can also keep the levels in memory,
+ * in order to share them between many games.
+ * @author Severin Gosset - Denis Biguenet
+ */
+@FunctionalInterface
+public interface LevelSource {
+	/**
+	 * Returns the lines of the given level.
+	 * @param level the number of the level.
+	 * @return the lines of the level, one string per row of the grid.
+	 * @throws IOException if the level doesn't exist, or another IOException occurs.
+	 */
+	public abstract List<String> load(int level) throws IOException;
+}
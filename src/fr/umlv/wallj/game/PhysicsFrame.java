@@ -0,0 +1,85 @@
+package fr.umlv.wallj.game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+import fr.umlv.wallj.bomb.Bomb;
+import fr.umlv.wallj.bomb.Explosion;
+import fr.umlv.wallj.display.Displayable;
+import fr.umlv.wallj.display.ShapeBatch;
+
+/**
+ * A snapshot of the moving parts of a board after one physics tick : the positions of the garbages, 
+ * and the time left and explosion of each bomb. The physics thread fills a frame, publishes it in a 
+ * {@code FrameBuffer}, and never touches it again until the render thread gives it back, 
+ * so a published frame can be drawn while the world keeps stepping.
+ * The {@code board} field is the board of the frame, used to draw its static grid.
+ * The {@code tick} field is the number of the physics tick of the frame.
+ * The {@code garbages} field contains the screen position {@code (x, y)} of the top left corner of each garbage,
+ * and {@code garbageCount} is the number of garbages in the frame.
+ * The {@code bombs}, {@code timeLeft} and {@code explosions} fields describe the state of each bomb.
+ * The {@code debris} field contains the screen positions of the debris, and {@code debrisCount} their number.
+ * The {@code greens}, {@code bombBodies} and {@code rays} fields are the batches in which the garbages and the debris, 
+ * the circles of the bombs and the rays of the explosions are collected, so each of them is drawn at once. 
+ * They are owned by the frame, as a frame is drawn by the render thread.
+ * @author Severin Gosset - Denis Biguenet
+ */
+class PhysicsFrame implements Displayable {
+	private final Board board;
+	long tick;
+	final float[] garbages;
+	int garbageCount;
+	final Bomb[] bombs;
+	final double[] timeLeft;
+	final Explosion[] explosions;
+	final float[] debris;
+	int debrisCount;
+	private final ShapeBatch greens = new ShapeBatch(Color.GREEN);
+	private final ShapeBatch bombBodies = new ShapeBatch(Color.ORANGE);
+	private final ShapeBatch rays = new ShapeBatch(Color.ORANGE);
+	
+	/**
+	 * Creates an empty frame, able to contain the given number of garbages and bombs.
+	 * @param board the board of the frame.
+	 * @param garbageCapacity the maximum number of garbages.
+	 * @param bombCapacity the number of bombs.
+	 * @param debrisCapacity the maximum number of debris.
+	 */
+	PhysicsFrame(Board board, int garbageCapacity, int bombCapacity, int debrisCapacity) {
+		this.board = board;
+		tick = -1;
+		garbages = new float[garbageCapacity * 2];
+		bombs = new Bomb[bombCapacity];
+		timeLeft = new double[bombCapacity];
+		explosions = new Explosion[bombCapacity];
+		debris = new float[debrisCapacity * 2];
+	}
+	
+	/**
+	 * Draws the frame : the grid of the board, then the garbages and the bombs as they were at the tick of the frame.
+	 * Like the board, only what intersects the clip of the graphics is drawn, and the shapes of the same color are drawn at once.
+	 * @param graphics the graphics in which the frame must be drawn.
+	 */
+	@Override
+	public void draw(Graphics2D graphics) {
+		board.drawGrid(graphics);
+		for (int i = 0; i < garbageCount; i++) {
+			float x = garbages[2 * i];
+			float y = garbages[2 * i + 1];
+			if (board.isVisible(x, y, Sizes.STEP))
+				greens.addRect(x, y, Sizes.STEP, Sizes.STEP);
+		}
+		board.addDebris(greens, debris, debrisCount);
+		greens.fill(graphics);
+		for (int i = 0; i < bombs.length; i++) {
+			if (bombs[i] != null && board.isBombVisible(bombs[i]))
+				bombs[i].addTo(bombBodies, rays, timeLeft[i], explosions[i]);
+		}
+		bombBodies.fill(graphics);
+		for (int i = 0; i < bombs.length; i++) {
+			if (bombs[i] != null && board.isBombVisible(bombs[i]))
+				bombs[i].drawLabel(graphics, timeLeft[i], explosions[i]);
+		}
+		rays.stroke(graphics);
+	}
+}
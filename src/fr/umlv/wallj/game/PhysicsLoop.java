@@ -0,0 +1,120 @@
+package fr.umlv.wallj.game;
+
+import java.util.Objects;
+
+/**
+ * Runs the physics phase of a board on its own thread : the bombs, the world steps and the destruction 
+ * of the garbages, paced at {@code timeScale} ticks every Sizes.LOOP_TIME. After each batch of ticks, a snapshot of the board 
+ * is published in the frame buffer, so the render thread draws while the world keeps stepping.
+ * The loop ends by itself when the level is won or the world has settled, or when {@code stop} is called.
+ * If a tick throws an exception, the loop ends too, and the exception is kept in {@code failure}, 
+ * so the thread waiting for the loop can rethrow it.
+ * The {@code writing} field is the frame the loop fills.
+ * The {@code stopRequested}, {@code finished}, {@code won} and {@code failure} fields are read by the render thread, 
+ * and {@code timeScale} is written by it, so they are volatile.
+ * @author Severin Gosset - Denis Biguenet
+ */
+class PhysicsLoop implements Runnable {
+	private final Board board;
+	private final FrameBuffer buffer;
+	private PhysicsFrame writing;
+	private long ticks;
+	private volatile boolean stopRequested;
+	private volatile boolean finished;
+	private volatile boolean won;
+	private volatile Throwable failure;
+	private volatile int timeScale = 1;
+	
+	/**
+	 * Creates a new loop, for the given board.
+	 * @param board the board whose physics must be run.
+	 * @param buffer the buffer in which the frames are published.
+	 * @param writing the first frame to fill, which must not be in the buffer.
+	 */
+	PhysicsLoop(Board board, FrameBuffer buffer, PhysicsFrame writing) {
+		this.board = Objects.requireNonNull(board);
+		this.buffer = Objects.requireNonNull(buffer);
+		this.writing = Objects.requireNonNull(writing);
+	}
+	
+	@Override
+	public void run() {
+		try {
+			while (!stopRequested) {
+				long t0 = System.nanoTime();
+				boolean ended = false;
+				for (int i = timeScale; i > 0 && !ended; i--) {
+					board.runBomb();
+					board.worldStep();
+					board.destroyGarbage();
+					ticks++;
+					won = board.isWon();
+					ended = won || board.isSettled();
+				}
+				board.snapshot(writing, ticks);
+				writing = buffer.publish(writing);
+				if (ended)
+					break;
+				long t1 = System.nanoTime() - t0;
+				if (Sizes.LOOP_TIME - t1/1000000 > 0l) {
+					try {
+						Thread.sleep(Sizes.LOOP_TIME - t1/1000000);
+					} catch (InterruptedException e) {
+						break;
+					}
+				}
+			}
+		} catch (RuntimeException | Error e) {
+			failure = e;
+		} finally {
+			finished = true;
+		}
+	}
+	
+	/**
+	 * Sets the number of ticks run between two published frames. It is used from the next batch of ticks.
+	 * @param timeScale the number of ticks.
+	 */
+	void setTimeScale(int timeScale) {
+		this.timeScale = timeScale;
+	}
+	
+	/**
+	 * Asks the loop to stop after the current batch of ticks.
+	 */
+	void stop() {
+		stopRequested = true;
+	}
+	
+	/**
+	 * Tells if the loop has ended. Once it has ended, the last published frame is the final state of the board.
+	 * @return true if the loop has ended.
+	 */
+	boolean isFinished() {
+		return finished;
+	}
+	
+	/**
+	 * Tells if the level was won when the loop ended.
+	 * @return true if all the garbages are gone.
+	 */
+	boolean isWon() {
+		return won;
+	}
+	
+	/**
+	 * Returns the exception which ended the loop.
+	 * @return the exception thrown by a tick, or null if the loop ended normally.
+	 */
+	Throwable getFailure() {
+		return failure;
+	}
+	
+	/**
+	 * Returns the number of ticks run by the loop. Must only be read once the thread of the loop is joined.
+	 * @return the number of ticks.
+	 */
+	long getTicks() {
+		return ticks;
+	}
+}
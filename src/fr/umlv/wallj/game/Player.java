@@ -10,11 +10,17 @@ import fr.umlv.wallj.pathfinding.Node;
 /**
  * Represents a player in the game. A player has coordinates (the {@code (x, y)} fields}, 
  * and implements Displayable as it can be drawn in the graphic window.
+ * The {@code shape} field is the circle drawn for the player, moved at each draw rather than created.
+ * The {@code (offsetX, offsetY)} fields are the distance, in cells, between the cell of the player and its drawn position :
+ * while the player walks, it is drawn between its cell and the next one.
  * @author Severin Gosset - Denis Biguenet.
  */
 public class Player implements Displayable {
 	private int x;
 	private int y;
+	private float offsetX;
+	private float offsetY;
+	private final Ellipse2D.Float shape = new Ellipse2D.Float(0, 0, Sizes.CIRCLES_DIAMETER, Sizes.CIRCLES_DIAMETER);
 	
 	/**
 	 * Creates a new player in the given x, y positions.
@@ -47,6 +53,34 @@ public class Player implements Displayable {
 	public void setPos(int x, int y) {
 		this.x = x;
 		this.y = y;	
+		offsetX = 0;
+		offsetY = 0;
+	}
+	
+	/**
+	 * Sets the distance between the cell of the player and its drawn position.
+	 * @param offsetX the horizontal distance, in cells.
+	 * @param offsetY the vertical distance, in cells.
+	 */
+	void setOffset(float offsetX, float offsetY) {
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+	}
+	
+	/**
+	 * Returns the abscissa of the drawn position of the player, in cells.
+	 * @return the drawn x of the player.
+	 */
+	public float getDrawnX() {
+		return x + offsetX;
+	}
+	
+	/**
+	 * Returns the ordinate of the drawn position of the player, in cells.
+	 * @return the drawn y of the player.
+	 */
+	public float getDrawnY() {
+		return y + offsetY;
 	}
 	
 	/**
@@ -67,15 +101,15 @@ public class Player implements Displayable {
 	
 	/**
 	 * Draws the player in the given graphic context.
-	 * The player is represented by a red circle, and is not drawn if its not on the board.
+	 * The player is represented by a red circle, at its drawn position, and is not drawn if its not on the board.
 	 */
 	@Override
 	public void draw(Graphics2D graphics) {
 		if (x > 0) { 
 		    graphics.setColor(Color.RED);
-		    graphics.fill(new Ellipse2D.Float(x * Sizes.STEP + Sizes.TOP_MARGIN + Sizes.CIRCLES_MARGIN, 
-					y * Sizes.STEP + Sizes.LEFT_MARGIN + Sizes.CIRCLES_MARGIN, 
-					Sizes.CIRCLES_DIAMETER, Sizes.CIRCLES_DIAMETER));
+		    shape.x = getDrawnX() * Sizes.STEP + Sizes.TOP_MARGIN + Sizes.CIRCLES_MARGIN;
+		    shape.y = getDrawnY() * Sizes.STEP + Sizes.LEFT_MARGIN + Sizes.CIRCLES_MARGIN;
+		    graphics.fill(shape);
 		}
 	}
 }
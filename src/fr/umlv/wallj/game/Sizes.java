@@ -12,6 +12,11 @@ public class Sizes {
 	public final static int CIRCLES_DIAMETER = STEP - CIRCLES_MARGIN * 2;
 	public final static int BOMB_RADIUS = (Sizes.CIRCLES_DIAMETER + Sizes.CIRCLES_MARGIN * 2) / 2;
 	public final static int EXPLOSION_RADIUS = 4 * STEP;
+	public final static double EXPLOSION_LIFETIME = 0.5;
 	public final static long LOOP_TIME = 30;
+	public final static long STEP_BUDGET = LOOP_TIME / 2;
+	public final static long IDLE_WAIT = 1000;
 	public final static int FONT_SIZE = 25;
+	public final static float SETTLE_VELOCITY = 0.5f;
+	public final static int SETTLE_STEPS = 30;
 }
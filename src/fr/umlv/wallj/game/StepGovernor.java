@@ -0,0 +1,201 @@
+package fr.umlv.wallj.game;
+
+/**
+ * Chooses the quality of the steps of the world, so the physics ticks of a frame stay within a budget of time.
+ * After each step, the governor measures its cost and keeps an average of the cost per tick.
+ * When the average is over the budget, the quality is lowered : first the velocity iterations of the solver,
+ * then its position iterations, down to their floor values, and then the stride,
+ * which is the number of ticks done by one step of the world, with a time step as many times longer.
+ * When the average is back under half the budget, the quality is raised again, in the reverse order.
+ * After each change, the governor waits {@code COOLDOWN} steps to measure the new cost before changing again.
+ * A governor without budget never changes : the world is always stepped with the full quality,
+ * which a recorded session needs, as the result of the steps must not depend on the speed of the machine.
+ * The {@code budget} field is the budget of the ticks of a frame in nanoseconds, 0 if there is none.
+ * The {@code ticksPerFrame} field is the number of ticks run per frame, given by the time scale : 
+ * the ticks of a frame share its budget, so the budget of a tick is {@code budget / ticksPerFrame}.
+ * It is written by the render thread while the physics may run on its own thread, so it is volatile.
+ * The {@code minVelocityIterations} and {@code minPositionIterations} fields are the floor values of the iterations.
+ * The {@code velocityIterations}, {@code positionIterations} and {@code stride} fields are the current setting.
+ * The {@code pending} field is the number of ticks since the last step of the world.
+ * The {@code averageCost} field is the average cost of a tick, in nanoseconds,
+ * {@code overruns} the number of steps over the budget, and {@code steps} the number of steps.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class StepGovernor {
+	public final static int MAX_VELOCITY_ITERATIONS = 8;
+	public final static int MAX_POSITION_ITERATIONS = 3;
+	public final static int MIN_VELOCITY_ITERATIONS = 3;
+	public final static int MIN_POSITION_ITERATIONS = 1;
+	public final static int MAX_STRIDE = 4;
+	private final static int COOLDOWN = 10;
+
+	private final long budget;
+	private volatile int ticksPerFrame = 1;
+	private final int minVelocityIterations;
+	private final int minPositionIterations;
+	private int velocityIterations = MAX_VELOCITY_ITERATIONS;
+	private int positionIterations = MAX_POSITION_ITERATIONS;
+	private int stride = 1;
+	private int pending;
+	private int cooldown;
+	private long averageCost;
+	private long overruns;
+	private long steps;
+
+	/**
+	 * Creates a governor keeping the ticks of a frame within the given budget, with the given floor values for the iterations.
+	 * @param budget the budget of the ticks of a frame, in nanoseconds, or 0 to always step with the full quality.
+	 * @param minVelocityIterations the minimum number of velocity iterations.
+	 * @param minPositionIterations the minimum number of position iterations.
+	 */
+	public StepGovernor(long budget, int minVelocityIterations, int minPositionIterations) {
+		if (budget < 0 || minVelocityIterations < 1 || minVelocityIterations > MAX_VELOCITY_ITERATIONS
+				|| minPositionIterations < 1 || minPositionIterations > MAX_POSITION_ITERATIONS)
+			throw new IllegalArgumentException();
+		this.budget = budget;
+		this.minVelocityIterations = minVelocityIterations;
+		this.minPositionIterations = minPositionIterations;
+	}
+
+	/**
+	 * Creates a governor keeping the ticks of a frame within the given budget, with the default floor values.
+	 * @param budget the budget of the ticks of a frame, in nanoseconds, or 0 to always step with the full quality.
+	 */
+	public StepGovernor(long budget) {
+		this(budget, MIN_VELOCITY_ITERATIONS, MIN_POSITION_ITERATIONS);
+	}
+
+	/**
+	 * Counts a new tick, and tells if the world must be stepped during this tick.
+	 * @return true if the world must be stepped.
+	 */
+	boolean tick() {
+		pending++;
+		if (pending < stride)
+			return false;
+		pending = 0;
+		return true;
+	}
+
+	/**
+	 * Sets the number of ticks run per frame, which share the budget. It is used from the next recorded step.
+	 * @param ticksPerFrame the number of ticks.
+	 */
+	void setTicksPerFrame(int ticksPerFrame) {
+		if (ticksPerFrame < 1)
+			throw new IllegalArgumentException();
+		this.ticksPerFrame = ticksPerFrame;
+	}
+
+	/**
+	 * Forgets the ticks counted since the last step, at the start of a physics phase.
+	 */
+	void restart() {
+		pending = 0;
+	}
+
+	/**
+	 * Records the cost of a step of the world, and changes the quality of the next steps if needed.
+	 * @param cost the time taken by the step, in nanoseconds.
+	 */
+	void record(long cost) {
+		steps++;
+		long perTick = cost / stride;
+		averageCost = averageCost == 0 ? perTick : (averageCost * 7 + perTick) / 8;
+		if (budget == 0)
+			return;
+		long tickBudget = budget / ticksPerFrame;
+		if (perTick > tickBudget)
+			overruns++;
+		if (cooldown > 0) {
+			cooldown--;
+			return;
+		}
+		if (averageCost > tickBudget)
+			lower();
+		else if (averageCost < tickBudget / 2)
+			raise();
+	}
+
+	private void lower() {
+		if (velocityIterations > minVelocityIterations)
+			velocityIterations--;
+		else if (positionIterations > minPositionIterations)
+			positionIterations--;
+		else if (stride < MAX_STRIDE)
+			stride *= 2;
+		else
+			return;
+		cooldown = COOLDOWN;
+	}
+
+	private void raise() {
+		if (stride > 1)
+			stride /= 2;
+		else if (positionIterations < MAX_POSITION_ITERATIONS)
+			positionIterations++;
+		else if (velocityIterations < MAX_VELOCITY_ITERATIONS)
+			velocityIterations++;
+		else
+			return;
+		cooldown = COOLDOWN;
+	}
+
+	/**
+	 * Returns the current number of velocity iterations of the solver.
+	 * @return the velocity iterations.
+	 */
+	public int getVelocityIterations() {
+		return velocityIterations;
+	}
+
+	/**
+	 * Returns the current number of position iterations of the solver.
+	 * @return the position iterations.
+	 */
+	public int getPositionIterations() {
+		return positionIterations;
+	}
+
+	/**
+	 * Returns the current number of ticks done by one step of the world.
+	 * @return the stride.
+	 */
+	public int getStride() {
+		return stride;
+	}
+
+	/**
+	 * Returns the average cost of a tick, in nanoseconds.
+	 * @return the average cost.
+	 */
+	public long getAverageCost() {
+		return averageCost;
+	}
+
+	/**
+	 * Returns the number of steps whose cost per tick was over the budget of a tick.
+	 * @return the number of overruns.
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 * Returns the number of steps of the world.
+	 * @return the number of steps.
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Returns the metrics of the governor : its current setting, the average cost of a tick and the number of overruns.
+	 * @return the String.
+	 */
+	@Override
+	public String toString() {
+		return "velocity iterations : " + velocityIterations + ", position iterations : " + positionIterations
+				+ ", stride : " + stride + ", tick : " + averageCost / 1000 + " us, overruns : " + overruns + "/" + steps;
+	}
+}
@@ -33,7 +33,12 @@ public class Trashcan extends DisplayableCell {
 	 * @param graphics the graphics context.
 	 */
 	public void draw(Graphics2D graphics) {
-	    graphics.setColor(Color.YELLOW);
+	    graphics.setColor(color());
 	    graphics.fill(shape());
 	}
+	
+	@Override
+	Color color() {
+		return Color.YELLOW;
+	}
 }
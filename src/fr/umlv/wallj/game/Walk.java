@@ -0,0 +1,77 @@
+package fr.umlv.wallj.game;
+
+import java.util.Objects;
+
+import fr.umlv.wallj.pathfinding.Node;
+import fr.umlv.wallj.pathfinding.Path;
+
+/**
+ * The walk of the player along a path, advanced by the main loop at each frame instead of being run at once.
+ * The player takes {@code CELL_TIME} nanoseconds to go from a cell to the next one : it stays in its cell
+ * until the time is over, and is drawn between the two cells meanwhile, so its movement looks continuous.
+ * The {@code player} field is the walking player, and {@code path} the path it follows.
+ * The {@code next} field is the next node of the path, null when the walk is over.
+ * The {@code progress} field is the time spent since the player left its cell, in nanoseconds.
+ * @author Severin Gosset - Denis Biguenet
+ */
+final class Walk {
+	final static long CELL_TIME = Sizes.LOOP_TIME * 1000000;
+
+	private final Player player;
+	private final Path path;
+	private Node next;
+	private long progress;
+
+	/**
+	 * Starts a walk of the given player along the given path.
+	 * If the player was already going to the first step of the path, its progress is kept, so it doesn't go back.
+	 * @param player the player.
+	 * @param path the path, starting at the cell of the player.
+	 * @param previous the walk interrupted by this one, or null if there is none.
+	 */
+	Walk(Player player, Path path, Walk previous) {
+		this.player = Objects.requireNonNull(player);
+		this.path = Objects.requireNonNull(path);
+		next = path.next();
+		if (previous != null && next != null && next.equals(previous.next))
+			progress = previous.progress;
+	}
+
+	/**
+	 * Returns the path of the walk.
+	 * @return the path.
+	 */
+	Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Advances the walk by the given time : the player enters the cells it has reached,
+	 * and its drawn position is moved between its cell and the next one.
+	 * @param elapsed the time since the last call, in nanoseconds.
+	 * @return true if the walk is over.
+	 */
+	boolean advance(long elapsed) {
+		progress += elapsed;
+		while (next != null && progress >= CELL_TIME) {
+			progress -= CELL_TIME;
+			player.moveOneCell(next);
+			next = path.next();
+		}
+		if (next == null) {
+			player.setOffset(0, 0);
+			return true;
+		}
+		float done = progress / (float) CELL_TIME;
+		player.setOffset((next.getX() - player.getX()) * done, (next.getY() - player.getY()) * done);
+		return false;
+	}
+
+	/**
+	 * Stops the walk : the player stays in the cell it has reached.
+	 */
+	void stop() {
+		next = null;
+		player.setOffset(0, 0);
+	}
+}
@@ -34,7 +34,12 @@ public class Wall extends DisplayableCell {
 	 * @param graphics the graphics context.
 	 */
 	public void draw(Graphics2D graphics) {
-	    graphics.setColor(Color.GRAY);
+	    graphics.setColor(color());
 	    graphics.fill(shape());
 	}
+	
+	@Override
+	Color color() {
+		return Color.GRAY;
+	}
 }
@@ -0,0 +1,357 @@
+package fr.umlv.wallj.game;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.World;
+
+import fr.umlv.wallj.bomb.Bomb;
+
+/**
+ * The JBox2D worlds of a board. A board can have only one world, or a world per region of the level :
+ * a region is a set of open cells separated from the other regions by walls and trashcans,
+ * so a garbage can never leave its region, and the regions can be stepped independently, in parallel.
+ * The regions with no garbage have nothing to step, so they all share the first world.
+ * A wall or a trashcan bordering several regions has a body in the world of each of them :
+ * the cell keeps the body of its first world, and the others are only there for the collisions.
+ * The explosions go through the walls, so they are fired in every world.
+ * The {@code worlds} field contains the worlds, and {@code shardOf} the index of the world of each open cell, -1 for the others.
+ * The {@code outsideShard} field is the index of the world of the region around the level, 
+ * which the walls on the border of the level are also bordering.
+ * The {@code width} field is the number of columns used to compute the id of a cell.
+ * The {@code destroyQueues} field contains the destroy queue of each world :
+ * the worlds are stepped at the same time, so they can't share one queue.
+ * The {@code pool} field is the pool stepping the worlds in parallel, null to step them one after the other.
+ * The {@code steps} field is the task stepping all the worlds in the pool, null without pool or with one world. 
+ * It is created once with the shards and reinitialized at each step, so a step doesn't allocate : 
+ * for the same reason, the stepping thread waits for it with {@code LockSupport.park} rather than with {@code pool.invoke}, 
+ * which allocates a node each time the caller has to wait.
+ * @author Severin Gosset - Denis Biguenet
+ */
+final class WorldShards {
+	private final World[] worlds;
+	private final int[] shardOf;
+	private final int width;
+	private final int outsideShard;
+	private final List<ArrayDeque<Body>> destroyQueues;
+	private final ForkJoinPool pool;
+	private final StepAll steps;
+
+	private WorldShards(World[] worlds, int[] shardOf, int width, int outsideShard, ForkJoinPool pool) {
+		this.worlds = worlds;
+		this.shardOf = shardOf;
+		this.width = width;
+		this.outsideShard = outsideShard;
+		this.pool = pool;
+		destroyQueues = new ArrayList<>(worlds.length);
+		for (int i = 0; i < worlds.length; i++) {
+			destroyQueues.add(new ArrayDeque<>());
+		}
+		steps = pool == null || worlds.length == 1 ? null : new StepAll(worlds);
+	}
+
+	/**
+	 * The step of one world, forked in the pool. The task is reused from step to step : 
+	 * the parameters of the step are set before each run. 
+	 * The task is never serialized, so the world is transient.
+	 */
+	private static final class Step extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final transient World world;
+		private float timeStep;
+		private int velocityIterations;
+		private int positionIterations;
+
+		private Step(World world) {
+			this.world = world;
+		}
+
+		@Override
+		protected void compute() {
+			world.step(timeStep, velocityIterations, positionIterations);
+		}
+	}
+
+	/**
+	 * The step of all the worlds : runs the steps of the worlds in parallel, then sets {@code done} and wakes up the {@code waiter}.
+	 * The task is never serialized, so the waiter is transient.
+	 */
+	private static final class StepAll extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Step[] steps;
+		private transient Thread waiter;
+		private volatile boolean done;
+
+		private StepAll(World[] worlds) {
+			steps = new Step[worlds.length];
+			for (int i = 0; i < worlds.length; i++) {
+				steps[i] = new Step(worlds[i]);
+			}
+		}
+
+		/**
+		 * Prepares the tasks for a new step with the given parameters, waited by the current thread.
+		 */
+		private void prepare(float timeStep, int velocityIterations, int positionIterations) {
+			reinitialize();
+			waiter = Thread.currentThread();
+			done = false;
+			for (Step step : steps) {
+				step.reinitialize();
+				step.timeStep = timeStep;
+				step.velocityIterations = velocityIterations;
+				step.positionIterations = positionIterations;
+			}
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				invokeAll(steps);
+			} finally {
+				done = true;
+				LockSupport.unpark(waiter);
+			}
+		}
+
+		/**
+		 * Waits for the end of the step, and rethrows the exception of a step which failed.
+		 * The task is only completed by the pool once {@code compute} has returned : it must be completed 
+		 * before being reinitialized for the next step, so the waiter yields until then. 
+		 * Once the task is completed, {@code join} doesn't wait.
+		 */
+		private void await() {
+			while (!done) {
+				LockSupport.park(this);
+			}
+			while (!isDone()) {
+				Thread.yield();
+			}
+			join();
+		}
+	}
+
+	/**
+	 * Creates the shards of a board with only one world.
+	 * @param world the world of the board.
+	 * @return the shards.
+	 */
+	static WorldShards single(World world) {
+		return new WorldShards(new World[] { Objects.requireNonNull(world) }, null, 0, 0, null);
+	}
+
+	/**
+	 * Creates the shards of a level with a world per region containing garbages.
+	 * The regions are the groups of open cells connected by a side or a corner,
+	 * and all the open cells on the border of the level are in the same region, as they are connected through the outside.
+	 * The given world is the first world, the others are created with the same gravity.
+	 * @param lines the lines of the level.
+	 * @param world the first world.
+	 * @param pool the pool in which the worlds are stepped.
+	 * @return the shards.
+	 */
+	static WorldShards partition(List<String> lines, World world, ForkJoinPool pool) {
+		int length = lines.size();
+		int width = 0;
+		for (String line : lines) {
+			width = Math.max(width, line.length());
+		}
+		int outside = length * width;
+		int[] parent = new int[outside + 1];
+		for (int i = 0; i <= outside; i++) {
+			parent[i] = i;
+		}
+		for (int i = 0; i < length; i++) {
+			for (int j = 0; j < width; j++) {
+				if (!isOpen(lines, i, j))
+					continue;
+				if (i == 0 || j == 0 || i == length - 1 || j == width - 1)
+					union(parent, i * width + j, outside);
+				for (int di = -1; di <= 1; di++) {
+					for (int dj = -1; dj <= 1; dj++) {
+						int k = i + di, l = j + dj;
+						if (k >= 0 && l >= 0 && k < length && l < width && isOpen(lines, k, l))
+							union(parent, i * width + j, k * width + l);
+					}
+				}
+			}
+		}
+		int[] worldOfRoot = new int[outside + 1];
+		ArrayList<World> worlds = new ArrayList<>();
+		for (int i = 0; i < length; i++) {
+			for (int j = 0; j < width; j++) {
+				if (charAt(lines, i, j) != Cell.GARBAGE)
+					continue;
+				int root = find(parent, i * width + j);
+				if (worldOfRoot[root] == 0) {
+					worlds.add(worlds.isEmpty() ? world : new World(world.getGravity().clone()));
+					worldOfRoot[root] = worlds.size();
+				}
+			}
+		}
+		if (worlds.isEmpty()) {
+			worlds.add(world);
+		}
+		int[] shardOf = new int[outside];
+		for (int id = 0; id < outside; id++) {
+			shardOf[id] = isOpen(lines, id / width, id % width) ? Math.max(0, worldOfRoot[find(parent, id)] - 1) : -1;
+		}
+		int outsideShard = Math.max(0, worldOfRoot[find(parent, outside)] - 1);
+		return new WorldShards(worlds.toArray(new World[0]), shardOf, width, outsideShard, pool);
+	}
+
+	private static int charAt(List<String> lines, int row, int col) {
+		String line = lines.get(row);
+		return col < line.length() ? line.charAt(col) : ' ';
+	}
+
+	private static boolean isOpen(List<String> lines, int row, int col) {
+		int c = charAt(lines, row, col);
+		return c != Cell.WALL && c != Cell.TRASHCAN;
+	}
+
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parent, int i, int j) {
+		int ri = find(parent, i), rj = find(parent, j);
+		if (ri < rj)
+			parent[rj] = ri;
+		else
+			parent[ri] = rj;
+	}
+
+	/**
+	 * Returns the number of worlds.
+	 * @return the number of worlds.
+	 */
+	int size() {
+		return worlds.length;
+	}
+
+	private int shardAt(int row, int col) {
+		return shardOf == null ? 0 : Math.max(0, shardOf[row * width + col]);
+	}
+
+	/**
+	 * Returns the world in which the bodies of the given cell must be created.
+	 * @param row the row of the cell.
+	 * @param col the column of the cell.
+	 * @return the world of the cell.
+	 */
+	World worldAt(int row, int col) {
+		return worlds[shardAt(row, col)];
+	}
+
+	/**
+	 * Creates a new cell of the given type. The body of a wall or a trashcan is created in the worlds
+	 * of all the regions around it, including the outside of the level if it is on the border, 
+	 * the body of a garbage in the world of its region.
+	 * @param row the row of the cell.
+	 * @param col the column of the cell.
+	 * @param type the type of the cell.
+	 * @return the new cell.
+	 */
+	DisplayableCell newCell(int row, int col, int type) {
+		if (shardOf == null || (type != Cell.WALL && type != Cell.TRASHCAN))
+			return Cell.newCell(worldAt(row, col), row, col, type);
+		int length = shardOf.length / width;
+		boolean[] bordered = new boolean[worlds.length];
+		if (row == 0 || col == 0 || row == length - 1 || col == width - 1)
+			bordered[outsideShard] = true;
+		for (int k = Math.max(0, row - 1); k <= Math.min(length - 1, row + 1); k++) {
+			for (int l = Math.max(0, col - 1); l <= Math.min(width - 1, col + 1); l++) {
+				int shard = shardOf[k * width + l];
+				if (shard != -1)
+					bordered[shard] = true;
+			}
+		}
+		int first = 0;
+		while (first < worlds.length - 1 && !bordered[first]) {
+			first++;
+		}
+		DisplayableCell cell = Cell.newCell(worlds[first], row, col, type);
+		CollisionCategory category = CollisionCategory.ofCell(type);
+		for (int shard = first + 1; shard < worlds.length; shard++) {
+			if (bordered[shard])
+				DisplayableCell.initializeBody(worlds[shard], row, col, BodyType.STATIC, category);
+		}
+		return cell;
+	}
+
+	/**
+	 * Sets a collision handler and a collision filter in each world.
+	 */
+	void setPhysics() {
+		for (int i = 0; i < worlds.length; i++) {
+			worlds[i].setContactListener(new CollisionHandler(destroyQueues.get(i)));
+			worlds[i].setContactFilter(new CollisionFilter());
+		}
+	}
+
+	/**
+	 * Steps all the worlds, in parallel if there is a pool and more than one world.
+	 * Returns when all the worlds have been stepped.
+	 * @param timeStep the time of the step.
+	 * @param velocityIterations the number of velocity iterations of the solver.
+	 * @param positionIterations the number of position iterations of the solver.
+	 */
+	void step(float timeStep, int velocityIterations, int positionIterations) {
+		if (steps == null) {
+			for (World world : worlds) {
+				world.step(timeStep, velocityIterations, positionIterations);
+			}
+			return;
+		}
+		steps.prepare(timeStep, velocityIterations, positionIterations);
+		pool.execute(steps);
+		steps.await();
+	}
+
+	/**
+	 * Fires the explosion of the given bomb in the worlds other than its own :
+	 * the bomb has already fired it in its world when it exploded.
+	 * @param bomb the bomb which has exploded.
+	 */
+	void fireElsewhere(Bomb bomb) {
+		int own = shardAt(bomb.getX(), bomb.getY());
+		for (int i = 0; i < worlds.length; i++) {
+			if (i != own)
+				bomb.getExplosion().fire(worlds[i]);
+		}
+	}
+
+	/**
+	 * Removes and returns the next garbage body to destroy, the queues of the worlds being emptied in order.
+	 * @return the next body to destroy, or null if there is none.
+	 */
+	Body pollDestroyed() {
+		for (int i = 0; i < destroyQueues.size(); i++) {
+			Body body = destroyQueues.get(i).poll();
+			if (body != null)
+				return body;
+		}
+		return null;
+	}
+
+	/**
+	 * Empties the destroy queues of all the worlds.
+	 */
+	void clearDestroyed() {
+		for (ArrayDeque<Body> queue : destroyQueues) {
+			queue.clear();
+		}
+	}
+}
@@ -2,35 +2,54 @@ package fr.umlv.wallj.main;
 
 import java.awt.Color;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import fr.umlv.wallj.game.Game;
+import fr.umlv.wallj.game.Sizes;
+import fr.umlv.wallj.replay.Recorder;
 import fr.umlv.zen5.Application;
 
 /**
  * The entry point of the game, contain the {@code main} method.
+ * Usage : {@code Main [--record <file>] [--sharded]}.
+ * The game can be recorded in a session log with the {@code --record <file>} arguments.
+ * With {@code --sharded}, the regions of each level are stepped in parallel in their own worlds, 
+ * and the log records it, so the session is replayed in the same mode.
  * @author odomar
  *
  */
 public class Main {
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		List<String> options = List.of(args);
+		boolean sharded = options.contains("--sharded");
+		int record = options.indexOf("--record");
+		if (args.length != (sharded ? 1 : 0) + (record == -1 ? 0 : 2) || record == args.length - 1) {
+			System.err.println("Usage : Main [--record <file>] [--sharded]");
+			System.exit(1);
+		}
+		Recorder recorder = null;
+		if (record != -1)
+			recorder = new Recorder(Files.newOutputStream(Paths.get(args[record + 1])), sharded);
+		Recorder session = recorder;
 	    Application.run(Color.BLACK, context -> {
 			int level = 0;
     		Game game = new Game();
+    		game.setSession(session);
+    		game.setThreadedPhysics(session == null);
+    		game.setStepBudget(Sizes.STEP_BUDGET);
+    		if (sharded)
+    			game.setShardPool(ForkJoinPool.commonPool());
 	    	while(true) {
 	    		try {
 	    			game.nextLevel(level, context);
-					game.setFirstPlayerPos();
-					while(game.refresh()) {
-						/* Waiting for the game to be played, stops when 'F' is pressed */
+					while (!game.playLevel()) {
+						/* The level is lost : retry it with the same bombs */
+						game.retry();
 					}
-					game.setPhysics();
-					while(game.physics()) {
-						/* Waiting for the physics to be done : either there is no more garbage, 
-						 * or the user presses a keyboard button
-						 */
-					}
-					if (game.endGame())
-						level++;
+					level++;
 	    		} catch(IOException e) {
 	    			/* There is no way to ensure the IOException is thrown because there is no next level, 
 	    			 * except by checking that the exception message is the name of the requested level.
@@ -39,10 +58,23 @@ public class Main {
 	    				System.out.println("Well played ! You made it through all the levels !");
 	    			else
 	    				System.err.println("Unexpected IOException : " + e.getMessage());
+	    			if (game.getRenderScheduler() != null)
+	    				System.out.println("Renders : " + game.getRenderScheduler());
+	    			closeSession(session);
 	    			context.exit(0);
 	    		}
 	    	}
 	    });
 	}
+	
+	private static void closeSession(Recorder session) {
+		if (session == null)
+			return;
+		try {
+			session.close();
+		} catch (IOException e) {
+			System.err.println("Unexpected IOException : " + e.getMessage());
+		}
+	}
 
 }
@@ -0,0 +1,114 @@
+package fr.umlv.wallj.main;
+
+import java.awt.Color;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import fr.umlv.wallj.display.FrameCapture;
+import fr.umlv.wallj.game.Game;
+import fr.umlv.wallj.replay.Replayer;
+import fr.umlv.zen5.ApplicationContext;
+import fr.umlv.zen5.Application;
+
+/**
+ * Replays a session recorded with {@code Main --record <file>}, at full speed.
+ * Usage : {@code Replay <file> [--render | --png <directory> | --raw <file>]}. Without {@code --render}, the game runs without display.
+ * With {@code --png} or {@code --raw}, the game runs without display, but its frames are drawn offscreen, 
+ * and written as PNG files in the directory or as raw RGB frames in the file, in {@code CAPTURE_WIDTH x CAPTURE_HEIGHT}.
+ * The session is replayed with sharded physics if it was recorded with it.
+ * At the end, prints the number of replayed levels and ticks, and the time it took.
+ * @author odomar
+ *
+ */
+public class Replay {
+	public final static int CAPTURE_WIDTH = 1280;
+	public final static int CAPTURE_HEIGHT = 720;
+	
+	public static void main(String[] args) throws IOException {
+		boolean render = args.length == 2 && args[1].equals("--render");
+		boolean png = args.length == 3 && args[1].equals("--png");
+		boolean raw = args.length == 3 && args[1].equals("--raw");
+		if (args.length != 1 && !render && !png && !raw) {
+			System.err.println("Usage : Replay <file> [--render | --png <directory> | --raw <file>]");
+			System.exit(1);
+		}
+		Replayer replayer = new Replayer(Files.newInputStream(Paths.get(args[0])));
+		if (render) {
+			Application.run(Color.BLACK, context -> {
+				replay(replayer, context, null);
+				context.exit(0);
+			});
+		}
+		else if (png || raw) {
+			try (FrameCapture capture = png ? FrameCapture.toPng(Paths.get(args[2]), CAPTURE_WIDTH, CAPTURE_HEIGHT)
+					: FrameCapture.toRaw(Files.newOutputStream(Paths.get(args[2])), CAPTURE_WIDTH, CAPTURE_HEIGHT)) {
+				replay(replayer, null, capture);
+				System.out.println("Capture : " + capture);
+			}
+		}
+		else
+			replay(replayer, null, null);
+	}
+	
+	/**
+	 * Replays all the levels of the log.
+	 * @param replayer the replayer reading the log.
+	 * @param context the context in which the game is drawn, or null to replay without display.
+	 * @param capture the capture of the frames, or null if the game is not captured.
+	 */
+	private static void replay(Replayer replayer, ApplicationContext context, FrameCapture capture) {
+		Game game = new Game();
+		game.setCapture(capture);
+		if (replayer.isSharded())
+			game.setShardPool(ForkJoinPool.commonPool());
+		int levels = 0;
+		long t0 = System.nanoTime();
+		try {
+			levels = replayLevels(game, replayer, context);
+		} catch (IOException e) {
+			System.err.println("Unexpected IOException : " + e.getMessage());
+		}
+		long t1 = System.nanoTime() - t0;
+		System.out.println("Replayed " + levels + " level(s), " + replayer.getTotalTicks() + " ticks in " + t1 / 1000000 + " ms.");
+		try {
+			replayer.close();
+		} catch (IOException e) {
+			System.err.println("Unexpected IOException : " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Replays in the given game all the levels of the log, until the end of the log.
+	 * A log which ends during a level, because the window was closed, stops the replay at this point.
+	 * @param game the game in which the log is replayed.
+	 * @param replayer the replayer reading the log.
+	 * @param context the context in which the game is drawn, or null to replay without display.
+	 * @return the number of completed levels.
+	 * @throws IOException if a level can't be loaded, or the log can't be read.
+	 */
+	static int replayLevels(Game game, Replayer replayer, ApplicationContext context) throws IOException {
+		game.setSession(replayer);
+		int levels = 0;
+		try {
+			while (replayer.hasNextLevel()) {
+				int level = replayer.nextLevel();
+				if (context == null)
+					game.nextLevel(level);
+				else
+					game.nextLevel(level, context);
+				while (!game.playLevel()) {
+					game.retry();
+				}
+				levels++;
+			}
+		} catch (UncheckedIOException e) {
+			if (!(e.getCause() instanceof EOFException))
+				throw e;
+		}
+		return levels;
+	}
+}
@@ -0,0 +1,111 @@
+package fr.umlv.wallj.main;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import fr.umlv.wallj.game.Board;
+import fr.umlv.wallj.game.Game;
+import fr.umlv.wallj.replay.Replayer;
+
+/**
+ * Runs many independent games at the same time, without display, to evaluate the game.
+ * Usage : {@code Runner <file> <games> [--sharded] [--levels <directory>]}. Each game replays the given session log in its own board and world.
+ * The levels are read in the given directory, the levels directory by default.
+ * With {@code --sharded}, the regions of each level are stepped in parallel in their own worlds. 
+ * The sharded physics doesn't give exactly the same results as one world, so a log can only be run in the mode 
+ * it was recorded in ({@code Main --record <file> [--sharded]}) : the Runner refuses a log of the other mode.
+ * To compare the modes, record the same moves once in each mode, and compare the ticks per second of the two logs.
+ * The games run on virtual threads when the JVM has them, and on one thread per core if not.
+ * The levels are read once and shared by all the games.
+ * At the end, prints the number of physics ticks run by all the games, and the aggregate ticks per second.
+ * @author odomar
+ *
+ */
+public class Runner {
+	public static void main(String[] args) throws IOException, InterruptedException {
+		List<String> options = List.of(args);
+		boolean sharded = options.contains("--sharded");
+		int directory = options.indexOf("--levels");
+		if (args.length != 2 + (sharded ? 1 : 0) + (directory == -1 ? 0 : 2) 
+				|| (sharded && options.indexOf("--sharded") < 2) || (directory != -1 && directory < 2) || directory == args.length - 1) {
+			System.err.println("Usage : Runner <file> <games> [--sharded] [--levels <directory>]");
+			System.exit(1);
+		}
+		String levelsDirectory = directory == -1 ? "levels" : args[directory + 1];
+		ForkJoinPool shardPool = sharded ? ForkJoinPool.commonPool() : null;
+		byte[] log = Files.readAllBytes(Paths.get(args[0]));
+		try (Replayer header = new Replayer(new ByteArrayInputStream(log))) {
+			if (header.isSharded() != sharded) {
+				System.err.println("The log was recorded " + (header.isSharded() ? "with" : "without") 
+						+ " sharded physics, run it " + (header.isSharded() ? "with" : "without") + " --sharded");
+				System.exit(1);
+			}
+		}
+		int games = Integer.parseInt(args[1]);
+		ConcurrentHashMap<Integer, List<String>> levels = new ConcurrentHashMap<>();
+		LongAdder ticks = new LongAdder();
+		LongAdder failures = new LongAdder();
+		
+		long t0 = System.nanoTime();
+		ExecutorService executor = newExecutor();
+		for (int i = 0; i < games; i++) {
+			executor.execute(() -> {
+				Game game = new Game();
+				game.setLevelSource(level -> loadLevel(levelsDirectory, levels, level));
+				game.setShardPool(shardPool);
+				try (Replayer replayer = new Replayer(new ByteArrayInputStream(log))) {
+					Replay.replayLevels(game, replayer, null);
+				} catch (IOException | RuntimeException e) {
+					failures.increment();
+					System.err.println("Game failed : " + e.getMessage());
+				}
+				ticks.add(game.getTicks());
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		long t1 = System.nanoTime() - t0;
+		
+		System.out.println(games + " games (" + failures.sum() + " failed), " + ticks.sum() + " ticks in " + t1 / 1000000 + " ms.");
+		System.out.println(String.format("%.0f ticks per second.", ticks.sum() / (t1 / 1e9)));
+	}
+	
+	/**
+	 * Returns the lines of a level, reading them only the first time the level is needed.
+	 * @param directory the directory of the levels.
+	 * @param levels the levels already read.
+	 * @param level the number of the level.
+	 * @return the lines of the level.
+	 * @throws IOException if the level doesn't exist, or another IOException occurs.
+	 */
+	private static List<String> loadLevel(String directory, ConcurrentHashMap<Integer, List<String>> levels, int level) throws IOException {
+		List<String> lines = levels.get(level);
+		if (lines == null) {
+			lines = Board.readLevel(directory, level);
+			levels.putIfAbsent(level, lines);
+		}
+		return lines;
+	}
+	
+	/**
+	 * Returns an executor running each task on a new virtual thread if the JVM has virtual threads 
+	 * (Java 21 and later), or on a pool of one thread per core if not.
+	 * @return the executor.
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+	}
+}
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Objects;
 
 import fr.umlv.wallj.display.Displayable;
+import fr.umlv.wallj.game.Board;
 import fr.umlv.wallj.game.Sizes;
 
 /**
@@ -15,11 +16,13 @@ import fr.umlv.wallj.game.Sizes;
  *  The {@code path} is an ArrayList containing the way to go from the start node (player's position)
  *  to the arrival node (player's choice).
  *  The {@code index} is the current index of the path.
+ *  The {@code circle} is the shape of a node, moved to each node when it's drawn.
  * @author Severin Gosset - Denis Biguenet
  */
 public class Path implements Displayable {
 	private final ArrayList<Node> path;
 	private int index;
+	private final Ellipse2D.Float circle = new Ellipse2D.Float(0, 0, Sizes.CIRCLES_DIAMETER, Sizes.CIRCLES_DIAMETER);
 	
 	/**
 	 * Creates a new path with the given list of nodes.
@@ -38,6 +41,27 @@ public class Path implements Displayable {
 		return path.size();
 	}
 	
+	/**
+	 * Returns the current index of the path : the nodes before it are already walked.
+	 * @return the index.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Marks as changed in the given board the cells of the nodes between the given indexes, 
+	 * so they are drawn again by the next render.
+	 * @param board the board on which the path is drawn.
+	 * @param from the index of the first node, included.
+	 * @param to the index of the last node, excluded.
+	 */
+	public void markDirty(Board board, int from, int to) {
+		for (int i = from; i < Math.min(to, path.size()); i++) {
+			board.markDirty(path.get(i).getY(), path.get(i).getX());
+		}
+	}
+	
 	/**
 	 * Increments the index of the current path and returns the next node.
 	 * @return the next node.
@@ -60,6 +84,21 @@ public class Path implements Displayable {
 		}
 	}
 	
+	/**
+	 * Draws the nodes of the path in the given cell.
+	 * @param graphics the graphics in which the path must be drawn.
+	 * @param x the x of the cell.
+	 * @param y the y of the cell.
+	 */
+	public void drawAt(Graphics2D graphics, int x, int y) {
+		for (int i = 0; i < path.size(); i++) {
+			if (path.get(i).getX() == x && path.get(i).getY() == y) {
+				graphics.setColor(color(i));
+				graphics.fill(shape(i));
+			}
+		}
+	}
+	
 	/**
 	 * Returns a color to draw the path.
 	 * @param i the index.
@@ -72,14 +111,15 @@ public class Path implements Displayable {
 	}
 
 	/**
-	 * Creates a new shape and returns it.
+	 * Returns the shape of a node. The same shape is moved and returned for every node, 
+	 * so it must be used before the next call.
 	 * @param i : the current index of the path.
-	 * @return the created shape.
+	 * @return the shape.
 	 */
 	public Shape shape(int i) {
-		return new Ellipse2D.Float(path.get(i).getX() * Sizes.STEP + Sizes.TOP_MARGIN + Sizes.CIRCLES_MARGIN, 
-				path.get(i).getY() * Sizes.STEP + Sizes.LEFT_MARGIN + Sizes.CIRCLES_MARGIN, 
-				Sizes.CIRCLES_DIAMETER, Sizes.CIRCLES_DIAMETER);
+		circle.x = path.get(i).getX() * Sizes.STEP + Sizes.TOP_MARGIN + Sizes.CIRCLES_MARGIN;
+		circle.y = path.get(i).getY() * Sizes.STEP + Sizes.LEFT_MARGIN + Sizes.CIRCLES_MARGIN;
+		return circle;
 	}
 
 }
@@ -0,0 +1,64 @@
+package fr.umlv.wallj.replay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Describes the binary log of a session. The log starts with the {@code MAGIC} int, the {@code VERSION} byte 
+ * and a byte of flags : {@code SHARDED} tells the session was played with sharded physics, which must be replayed 
+ * in the same mode as it doesn't give the same results as one world. The header is followed by records, each starting with a tag byte :
+ * {@code LEVEL} is followed by the number of the level,
+ * {@code EVENT} is followed by the number of ticks since the previous event of the level, the code of the event 
+ * as a byte and, if the event is a click, its coordinates on the board,
+ * {@code CHECKSUM} is followed by the checksum of the board, as a long, at the end of the physics phase.
+ * A tick is one call to {@code waitEvent}. Only the logs of the current version can be replayed : 
+ * the walk of the player lasts several ticks since the version 2, and the header has flags since the version 3.
+ * Numbers are written as variable length unsigned integers, 7 bits per byte, so an event usually takes 3 to 5 bytes.
+ * @author Severin Gosset - Denis Biguenet
+ */
+class LogFormat {
+	static final int MAGIC = 0x574A5250;
+	static final int VERSION = 3;
+	static final int SHARDED = 1;
+	static final int LEVEL = 1;
+	static final int EVENT = 2;
+	static final int CHECKSUM = 3;
+	static final int CLICK = -1;
+	
+	private LogFormat() {
+	}
+	
+	/**
+	 * Writes a positive number on as few bytes as possible.
+	 * @param out the output in which the number must be written.
+	 * @param value the number to write.
+	 * @throws IOException if the number can't be written.
+	 */
+	static void writeVarLong(DataOutput out, long value) throws IOException {
+		if (value < 0)
+			throw new IllegalArgumentException("value must be positive !");
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+	
+	/**
+	 * Reads a number written with {@code writeVarLong}.
+	 * @param in the input from which the number must be read.
+	 * @return the number.
+	 * @throws IOException if the number can't be read.
+	 */
+	static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("malformed number in the log");
+	}
+}
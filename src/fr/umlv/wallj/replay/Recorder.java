@@ -0,0 +1,141 @@
+package fr.umlv.wallj.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+import fr.umlv.wallj.display.EventSource;
+
+/**
+ * Records a session in a binary log (see {@code LogFormat}). The recorder stands between the game and 
+ * the real source of events : each event is given to the game and written in the log with its tick.
+ * The {@code out} field is the stream of the log.
+ * The {@code sharded} field tells if the session is played with sharded physics.
+ * The {@code live} field is the source of the real events for the current level.
+ * The {@code tick} field is the number of calls to {@code waitEvent} since the start of the level, 
+ * and {@code lastEventTick} is the tick of the last recorded event.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class Recorder implements Session, EventSource, Closeable {
+	private final DataOutputStream out;
+	private final boolean sharded;
+	private EventSource live;
+	private long tick;
+	private long lastEventTick;
+	
+	/**
+	 * Creates a new recorder, writing the log in the given stream.
+	 * @param stream the stream of the log.
+	 * @param sharded true if the session is played with sharded physics.
+	 * @throws IOException if the header of the log can't be written.
+	 */
+	public Recorder(OutputStream stream, boolean sharded) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(Objects.requireNonNull(stream)));
+		this.sharded = sharded;
+		out.writeInt(LogFormat.MAGIC);
+		out.writeByte(LogFormat.VERSION);
+		out.writeByte(sharded ? LogFormat.SHARDED : 0);
+		out.flush();
+	}
+	
+	/**
+	 * Creates a new recorder of a session played in one world, writing the log in the given stream.
+	 * @param stream the stream of the log.
+	 * @throws IOException if the header of the log can't be written.
+	 */
+	public Recorder(OutputStream stream) throws IOException {
+		this(stream, false);
+	}
+	
+	@Override
+	public boolean isSharded() {
+		return sharded;
+	}
+	
+	@Override
+	public EventSource startLevel(int level, EventSource live) throws IOException {
+		this.live = Objects.requireNonNull(live, "a recorder needs the real events of the user !");
+		tick = 0;
+		lastEventTick = 0;
+		out.writeByte(LogFormat.LEVEL);
+		LogFormat.writeVarLong(out, level);
+		out.flush();
+		return this;
+	}
+	
+	@Override
+	public void endPhysics(long checksum) throws IOException {
+		out.writeByte(LogFormat.CHECKSUM);
+		out.writeLong(checksum);
+		out.flush();
+	}
+	
+	@Override
+	public boolean isRealTime() {
+		return true;
+	}
+	
+	/**
+	 * Returns the next event of the real source, and writes it in the log if it is not empty.
+	 * The log is flushed after each event, so it is complete even if the window is closed.
+	 * @return the event.
+	 */
+	@Override
+	public int waitEvent() {
+		return record(live.waitEvent());
+	}
+	
+	/**
+	 * Returns the next event of the real source, waiting at most the given time for it, and writes it in the log if it is not empty.
+	 * A call is one tick, whatever the time it waited, so the log is replayed the same way.
+	 * @param timeout the maximum time to wait, in milliseconds.
+	 * @return the event.
+	 */
+	@Override
+	public int waitEvent(long timeout) {
+		return record(live.waitEvent(timeout));
+	}
+	
+	private int record(int event) {
+		if (event != -2) {
+			try {
+				out.writeByte(LogFormat.EVENT);
+				LogFormat.writeVarLong(out, tick - lastEventTick);
+				out.writeByte(event);
+				if (event == LogFormat.CLICK) {
+					LogFormat.writeVarLong(out, live.getXClick());
+					LogFormat.writeVarLong(out, live.getYClick());
+				}
+				out.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			lastEventTick = tick;
+		}
+		tick++;
+		return event;
+	}
+	
+	@Override
+	public int getXClick() {
+		return live.getXClick();
+	}
+	
+	@Override
+	public int getYClick() {
+		return live.getYClick();
+	}
+	
+	/**
+	 * Closes the log.
+	 * @throws IOException if the log can't be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,174 @@
+package fr.umlv.wallj.replay;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+import fr.umlv.wallj.display.EventSource;
+
+/**
+ * Replays a session recorded by a {@code Recorder}. The replayer gives the game the recorded events 
+ * at the same ticks as in the recorded session, and ignores the real events of the user.
+ * As the game is deterministic, the board at the end of each physics phase must have the recorded checksum.
+ * The {@code in} field is the stream of the log.
+ * The {@code sharded} field tells if the session was recorded with sharded physics.
+ * The {@code next} field is the tag of the next record of the log, or -1 at the end of the log.
+ * The {@code eventTick} field is the tick of the next event, and {@code tick} is the current tick.
+ * The {@code (xClick, yClick)} fields are the coordinates of the last replayed click.
+ * The {@code totalTicks} field is the number of ticks replayed since the start of the session.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class Replayer implements Session, EventSource, Closeable {
+	private final DataInputStream in;
+	private final boolean sharded;
+	private int next;
+	private long tick;
+	private long eventTick;
+	private int xClick;
+	private int yClick;
+	private long totalTicks;
+	
+	/**
+	 * Creates a new replayer, reading the log from the given stream.
+	 * @param stream the stream of the log.
+	 * @throws IOException if the stream is not a log of a session.
+	 */
+	public Replayer(InputStream stream) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(Objects.requireNonNull(stream)));
+		if (in.readInt() != LogFormat.MAGIC)
+			throw new IOException("not a Wall-J session log");
+		int version = in.readUnsignedByte();
+		if (version != LogFormat.VERSION)
+			throw new IOException("unsupported session log version : " + version);
+		sharded = (in.readUnsignedByte() & LogFormat.SHARDED) != 0;
+		readTag();
+	}
+	
+	private void readTag() throws IOException {
+		next = in.read();
+		if (next == LogFormat.EVENT)
+			eventTick = tick + LogFormat.readVarLong(in);
+	}
+	
+	/**
+	 * Tells if the log has another level to replay.
+	 * @return true if the next record is the start of a level.
+	 */
+	public boolean hasNextLevel() {
+		return next == LogFormat.LEVEL;
+	}
+	
+	/**
+	 * Returns the number of the next level to replay.
+	 * @return the number of the next level.
+	 * @throws IOException if the number can't be read.
+	 */
+	public int nextLevel() throws IOException {
+		if (!hasNextLevel())
+			throw new IllegalStateException("there is no level left in the log");
+		in.mark(16);
+		int level = (int) LogFormat.readVarLong(in);
+		in.reset();
+		return level;
+	}
+	
+	@Override
+	public EventSource startLevel(int level, EventSource live) throws IOException {
+		if (nextLevel() != level)
+			throw new IllegalStateException("the log replays level " + nextLevel() + ", not level " + level);
+		LogFormat.readVarLong(in);
+		tick = 0;
+		readTag();
+		return this;
+	}
+	
+	@Override
+	public void endPhysics(long checksum) throws IOException {
+		if (next != LogFormat.CHECKSUM)
+			throw new IllegalStateException("the replay diverged : the physics phase ended too early");
+		long recorded = in.readLong();
+		if (recorded != checksum)
+			throw new IllegalStateException("the replay diverged : the board differs from the recorded one");
+		readTag();
+	}
+	
+	@Override
+	public boolean isSharded() {
+		return sharded;
+	}
+	
+	@Override
+	public boolean isRealTime() {
+		return false;
+	}
+	
+	/**
+	 * Returns the recorded event of the current tick, if there is one.
+	 * @return the event.
+	 * @throws UncheckedIOException caused by an {@code EOFException} if the log ends during a level.
+	 */
+	@Override
+	public int waitEvent() {
+		try {
+			if (next == -1)
+				throw new EOFException("the log ends during a level");
+			int event = -2;
+			if (next == LogFormat.EVENT && tick == eventTick) {
+				event = in.readByte();
+				if (event == LogFormat.CLICK) {
+					xClick = (int) LogFormat.readVarLong(in);
+					yClick = (int) LogFormat.readVarLong(in);
+				}
+				readTag();
+			}
+			tick++;
+			totalTicks++;
+			return event;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Returns the recorded event of the current tick, if there is one, without waiting : a replay runs at full speed.
+	 * @param timeout ignored.
+	 * @return the event.
+	 * @throws UncheckedIOException caused by an {@code EOFException} if the log ends during a level.
+	 */
+	@Override
+	public int waitEvent(long timeout) {
+		return waitEvent();
+	}
+	
+	@Override
+	public int getXClick() {
+		return xClick;
+	}
+	
+	@Override
+	public int getYClick() {
+		return yClick;
+	}
+	
+	/**
+	 * Returns the number of ticks replayed since the start of the session.
+	 * @return the number of ticks.
+	 */
+	public long getTotalTicks() {
+		return totalTicks;
+	}
+	
+	/**
+	 * Closes the log.
+	 * @throws IOException if the log can't be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,42 @@
+package fr.umlv.wallj.replay;
+
+import java.io.IOException;
+
+import fr.umlv.wallj.display.EventSource;
+
+/**
+ * A Session follows a game from level to level, either to record the events of the user, or to replay them.
+ * The game asks the session, at the start of each level, which source of events it must use,
+ * and gives it the checksum of the board at the end of each physics phase.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public interface Session {
+	/**
+	 * Starts a new level of the session.
+	 * @param level the number of the level.
+	 * @param live the source of the real events of the user, or null if the game has no display.
+	 * @return the source of events the game must use during the level.
+	 * @throws IOException if the log of the session can't be written or read.
+	 */
+	public abstract EventSource startLevel(int level, EventSource live) throws IOException;
+	
+	/**
+	 * Ends the physics phase of the current level.
+	 * @param checksum the checksum of the board at the end of the physics phase.
+	 * @throws IOException if the log of the session can't be written or read.
+	 */
+	public abstract void endPhysics(long checksum) throws IOException;
+	
+	/**
+	 * Tells if the session is played with sharded physics. A session must be replayed in the mode it was recorded in,
+	 * as the sharded physics doesn't give exactly the same results as one world.
+	 * @return true if the regions of the levels are stepped in their own worlds, false if each level is stepped in one world.
+	 */
+	public abstract boolean isSharded();
+	
+	/**
+	 * Tells if the game must wait between two ticks, as the user plays in real time.
+	 * @return true if the game must be paced in real time, false if it can run at full speed.
+	 */
+	public abstract boolean isRealTime();
+}
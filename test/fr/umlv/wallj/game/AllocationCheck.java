@@ -0,0 +1,121 @@
+package fr.umlv.wallj.game;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.World;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Checks that the physics ticks don't allocate once warmed up : a level is played with a bomb
+ * until it is won or settled, then retried in place from its checkpoint, and the bytes allocated
+ * during the ticks of the retry, explosion included, must be zero.
+ * The first play is the warm-up : JBox2D grows its arrays during the first steps of a world,
+ * and the classes are loaded and the caches filled.
+ * The check is run in one world on the level 0, and with sharded physics on {@code ROOMS}, a small level of 3 rooms 
+ * whose 2 rooms with garbages are stepped in 2 worlds.
+ * The sharded worlds are stepped by the threads of a pool, so the bytes allocated by all the threads are counted.
+ * The rooms have few garbages, as JBox2D sorts the new pairs of a world with {@code Arrays.sort}, 
+ * which allocates when there are 32 pairs or more : a level as dense as the bench level allocates in one world too.
+ * Usage : {@code AllocationCheck}. Exits with the status 1 if a tick allocates.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class AllocationCheck {
+	private final static int MAX_TICKS = 2000;
+	private final static int WORKERS = 2;
+	private final static List<String> ROOMS = List.of(
+			"WWWTTWWWWWWWWWTTWWW",
+			"W     W     W     W",
+			"W   GGW     WGG   W",
+			"W   GGW     WGG   W",
+			"W     W     W     W",
+			"WWWTTWWWWWWWWWTTWWW");
+
+	public static void main(String[] args) throws IOException {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.err.println("The JVM can't measure the allocated memory");
+			System.exit(1);
+		}
+		boolean single = check("One world", Board.initializeBoard(Board.readLevel(0), new World(new Vec2(0, 0))), 22, 5);
+		ForkJoinPool pool = new ForkJoinPool(WORKERS);
+		boolean sharded = check("Sharded", Board.initializeBoard(ROOMS, new World(new Vec2(0, 0)), pool), 9, 3);
+		pool.shutdown();
+		if (!single || !sharded)
+			System.exit(1);
+	}
+
+	/**
+	 * Plays the level of the board twice with a bomb at the given cell, and checks that the second play doesn't allocate.
+	 * @param name the name of the check, printed with its result.
+	 * @param board the board.
+	 * @param col the column of the bomb.
+	 * @param row the row of the bomb.
+	 * @return true if no tick of the second play allocated.
+	 */
+	private static boolean check(String name, Board board, int col, int row) {
+		board.setPlayerPos(col, row);
+		board.dropBomb();
+		board.saveCheckpoint();
+		board.removeGarbage();
+		board.setPhysics();
+		int warmUp = play(board, new long[MAX_TICKS], null);
+
+		board.restoreCheckpoint();
+		board.removeGarbage();
+		board.setPhysics();
+		long[] allocated = new long[MAX_TICKS];
+		long[] ids = ((ThreadMXBean) ManagementFactory.getThreadMXBean()).getAllThreadIds();
+		int ticks = play(board, allocated, ids);
+
+		long total = 0;
+		for (int i = 0; i < ticks; i++) {
+			if (allocated[i] != 0)
+				System.err.println(name + " : tick " + i + " allocated " + allocated[i] + " bytes");
+			total += allocated[i];
+		}
+		System.out.println(name + " : " + ticks + " ticks after " + warmUp + " ticks of warm-up, "
+				+ total + " bytes allocated, won : " + board.isWon());
+		return total == 0;
+	}
+
+	/**
+	 * Runs the physics of the board until the level is won or settled.
+	 * @param board the board.
+	 * @param allocated the array in which the bytes allocated by each tick are stored.
+	 * @param ids the ids of the threads whose allocations are counted, or null to count the current thread only.
+	 * @return the number of ticks.
+	 */
+	private static int play(Board board, long[] allocated, long[] ids) {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		int tick = 0;
+		for (; tick < MAX_TICKS && !board.isWon() && !board.isSettled(); tick++) {
+			long before = allocatedBytes(threads, ids);
+			board.runBomb();
+			board.worldStep();
+			board.destroyGarbage();
+			allocated[tick] = allocatedBytes(threads, ids) - before;
+		}
+		return tick;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the given threads since their start.
+	 * @param threads the bean measuring the threads.
+	 * @param ids the ids of the threads, or null for the current thread.
+	 * @return the number of bytes.
+	 */
+	private static long allocatedBytes(ThreadMXBean threads, long[] ids) {
+		if (ids == null)
+			return threads.getCurrentThreadAllocatedBytes();
+		long bytes = 0;
+		for (long id : ids) {
+			bytes += Math.max(0, threads.getThreadAllocatedBytes(id));
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,103 @@
+package fr.umlv.wallj.game;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.World;
+
+import fr.umlv.wallj.bomb.Bomb;
+
+/**
+ * Checks the bomb index against a map of the bombs by cell, through random puts, removes and clears.
+ * After each operation, the bomb of every cell and the compact arrays must match the map :
+ * a removal moves the last bomb in the place of the removed one, and its slot must follow it.
+ * Usage : {@code BombIndexCheck}. Exits with the status 1 if the index doesn't match.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class BombIndexCheck {
+	private final static int CELLS = 64;
+	private final static int OPERATIONS = 20000;
+
+	public static void main(String[] args) {
+		Random random = new Random(0);
+		World world = new World(new Vec2(0, 0));
+		BombIndex index = new BombIndex(CELLS);
+		HashMap<Integer, Bomb> expected = new HashMap<>();
+		int failures = 0;
+		for (int op = 0; op < OPERATIONS && failures == 0; op++) {
+			int cell = random.nextInt(CELLS);
+			int kind = random.nextInt(100);
+			String operation;
+			if (kind == 0) {
+				operation = "clear";
+				index.clear();
+				expected.clear();
+			} else if (kind < 55) {
+				operation = "put " + cell;
+				Bomb bomb = Bomb.newBomb(world, cell / 8, cell % 8);
+				try {
+					index.put(cell, bomb);
+					if (expected.containsKey(cell)) {
+						System.err.println(operation + " : a second bomb was put on the cell");
+						failures++;
+					}
+					expected.put(cell, bomb);
+				} catch (IllegalStateException e) {
+					if (!expected.containsKey(cell)) {
+						System.err.println(operation + " : the cell has no bomb, but the put was refused");
+						failures++;
+					}
+				}
+			} else {
+				operation = "remove " + cell;
+				Bomb removed = index.remove(cell);
+				if (removed != expected.remove(cell)) {
+					System.err.println(operation + " : removed " + removed);
+					failures++;
+				}
+			}
+			failures += compare(operation, index, expected);
+		}
+		System.out.println(OPERATIONS + " operations on " + CELLS + " cells, " + failures + " wrong");
+		if (failures != 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Compares the index with the expected bombs.
+	 * @param operation the last operation, printed if the index is wrong.
+	 * @param index the index.
+	 * @param expected the expected bomb of each cell.
+	 * @return the number of differences found.
+	 */
+	private static int compare(String operation, BombIndex index, HashMap<Integer, Bomb> expected) {
+		int failures = 0;
+		if (index.size() != expected.size()) {
+			System.err.println(operation + " : size " + index.size() + " instead of " + expected.size());
+			failures++;
+		}
+		for (int cell = 0; cell < CELLS; cell++) {
+			if (index.get(cell) != expected.get(cell)) {
+				System.err.println(operation + " : wrong bomb on the cell " + cell);
+				failures++;
+			}
+		}
+		Set<Bomb> compact = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i = 0; i < index.size(); i++) {
+			if (expected.get(index.cell(i)) != index.bomb(i)) {
+				System.err.println(operation + " : the bomb " + i + " of the compact array is not on its cell");
+				failures++;
+			}
+			compact.add(index.bomb(i));
+		}
+		if (compact.size() != expected.size()) {
+			System.err.println(operation + " : the compact array has " + compact.size() + " distinct bombs instead of " + expected.size());
+			failures++;
+		}
+		return failures;
+	}
+}
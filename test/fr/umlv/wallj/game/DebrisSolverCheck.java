@@ -0,0 +1,163 @@
+package fr.umlv.wallj.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.World;
+
+/**
+ * Checks the debris solver. The debris don't collide with each other, so stepping them together
+ * must give the same debris as stepping each one alone : the solver of all the debris is compared,
+ * at each step, with a solver per debris, through blasts, bounces on the walls and destructions in the trashcans.
+ * This checks that the integrate pass and the collision pass keep each debris with its own next position,
+ * including when a destroyed debris is replaced by the last one.
+ * Then a copy of the solver is taken, and the steps following a {@code restore} of the copy must give
+ * the same checksums as the steps following the copy, also in a solver with fewer debris, whose arrays must grow to restore it.
+ * Usage : {@code DebrisSolverCheck}. Exits with the status 1 if the solvers differ.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class DebrisSolverCheck {
+	private final static List<String> LEVEL = List.of(
+			"WWWWWWWWWWWWWWWWWWWW",
+			"W                  W",
+			"W    W        T    W",
+			"W    W             W",
+			"T         WW       W",
+			"W         WW       T",
+			"W    T         W   W",
+			"W               W  W",
+			"W                  W",
+			"WWWWWTTWWWWWWWWWWWWW");
+	private final static int DEBRIS = 300;
+	private final static int STEPS = 600;
+	private final static int BLAST_PERIOD = 60;
+	private final static float DT = 1 / 60f;
+
+	public static void main(String[] args) {
+		Cell[][] grid = grid();
+		Random random = new Random(0);
+		DebrisSolver all = new DebrisSolver();
+		ArrayList<DebrisSolver> alone = new ArrayList<>();
+		while (alone.size() < DEBRIS) {
+			int row = random.nextInt(grid.length);
+			int col = random.nextInt(grid[0].length);
+			if (!grid[row][col].isEmpty())
+				continue;
+			all.add(row, col);
+			DebrisSolver solver = new DebrisSolver();
+			solver.add(row, col);
+			solver.bindGrid(grid);
+			alone.add(solver);
+		}
+		all.bindGrid(grid);
+
+		int failures = 0;
+		for (int step = 0; step < STEPS; step++) {
+			if (step % BLAST_PERIOD == 0) {
+				float x = Sizes.LEFT_MARGIN + random.nextFloat() * grid.length * Sizes.STEP;
+				float y = Sizes.TOP_MARGIN + random.nextFloat() * grid[0].length * Sizes.STEP;
+				all.blast(x, y, Sizes.EXPLOSION_RADIUS * 2);
+				for (DebrisSolver solver : alone) {
+					solver.blast(x, y, Sizes.EXPLOSION_RADIUS * 2);
+				}
+			}
+			all.step(DT);
+			for (DebrisSolver solver : alone) {
+				solver.step(DT);
+			}
+			if (!Arrays.equals(positions(all), positions(alone))) {
+				System.err.println("Step " + step + " : the debris stepped together differ from the debris stepped alone");
+				failures++;
+				break;
+			}
+		}
+		System.out.println("Together and alone : " + STEPS + " steps, " + all.size() + " debris left out of " + DEBRIS);
+		if (all.size() == DEBRIS) {
+			System.err.println("No debris was destroyed, the trashcans were not checked");
+			failures++;
+		}
+
+		DebrisSolver saved = all.copy();
+		long[] checksums = run(all);
+		DebrisSolver smaller = all.copy();
+		if (smaller.size() == saved.size()) {
+			System.err.println("No debris was destroyed after the copy, the growth of a restored solver was not checked");
+			failures++;
+		}
+		all.restore(saved);
+		if (!Arrays.equals(checksums, run(all))) {
+			System.err.println("The steps after a restore differ from the steps after the copy");
+			failures++;
+		}
+		smaller.restore(saved);
+		if (!Arrays.equals(checksums, run(smaller))) {
+			System.err.println("The steps after a restore in a smaller solver differ from the steps after the copy");
+			failures++;
+		}
+		System.out.println("Copy and restore : " + saved.size() + " debris restored, " + smaller.size() + " before the restore in a smaller solver");
+		if (failures != 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Builds the grid of the level : the walls and trashcans the debris collide with.
+	 * @return the grid.
+	 */
+	private static Cell[][] grid() {
+		World world = new World(new Vec2(0, 0));
+		Cell[][] grid = new Cell[LEVEL.size()][];
+		for (int i = 0; i < grid.length; i++) {
+			String line = LEVEL.get(i);
+			grid[i] = new Cell[line.length()];
+			for (int j = 0; j < line.length(); j++) {
+				grid[i][j] = Cell.newCell(world, i, j, line.charAt(j));
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Blasts the debris of the solver, then steps it, and returns its checksum after each step.
+	 * @param solver the solver.
+	 * @return the checksums.
+	 */
+	private static long[] run(DebrisSolver solver) {
+		long[] checksums = new long[STEPS];
+		solver.blast(Sizes.LEFT_MARGIN + 5 * Sizes.STEP, Sizes.TOP_MARGIN + 10 * Sizes.STEP, Sizes.EXPLOSION_RADIUS * 4);
+		for (int step = 0; step < STEPS; step++) {
+			solver.step(DT);
+			checksums[step] = solver.checksum(0);
+		}
+		return checksums;
+	}
+
+	/**
+	 * Returns the positions of the debris of the solvers, sorted, so they can be compared whatever their order.
+	 * @param solvers the solvers.
+	 * @return the positions, one long per debris.
+	 */
+	private static long[] positions(DebrisSolver... solvers) {
+		return positions(Arrays.asList(solvers));
+	}
+
+	private static long[] positions(List<DebrisSolver> solvers) {
+		int count = 0;
+		for (DebrisSolver solver : solvers) {
+			count += solver.size();
+		}
+		float[] screen = new float[2 * DEBRIS];
+		long[] positions = new long[count];
+		int k = 0;
+		for (DebrisSolver solver : solvers) {
+			int n = solver.copyScreenPositions(screen);
+			for (int i = 0; i < n; i++) {
+				positions[k++] = (long) Float.floatToIntBits(screen[2 * i]) << 32 | Float.floatToIntBits(screen[2 * i + 1]) & 0xFFFFFFFFL;
+			}
+		}
+		Arrays.sort(positions);
+		return positions;
+	}
+}
@@ -0,0 +1,127 @@
+package fr.umlv.wallj.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.World;
+
+/**
+ * Checks the queries of the garbage grid against a scan of all the garbages.
+ * The garbages are put at random positions, not at the center of their cells, with some walls
+ * and some garbages waiting to be destroyed, which must not be indexed.
+ * Random range queries, small enough to walk the buckets or large enough to scan the garbages,
+ * and random radius queries must give each expected garbage exactly once.
+ * The grid is then rebuilt with fewer garbages, and checked again, so no garbage of the previous build is left.
+ * Usage : {@code GarbageGridCheck}. Exits with the status 1 if a query is wrong.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class GarbageGridCheck {
+	private final static int ROWS = 40;
+	private final static int COLS = 60;
+	private final static int QUERIES = 2000;
+	private static int failures;
+
+	public static void main(String[] args) {
+		Random random = new Random(0);
+		World world = new World(new Vec2(0, 0));
+		ArrayList<DisplayableCell> cells = new ArrayList<>();
+		ArrayList<Garbage> garbages = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			DisplayableCell cell = Cell.newCell(world, random.nextInt(ROWS), random.nextInt(COLS), i % 10 == 0 ? 'W' : 'G');
+			cells.add(cell);
+			if (i % 10 == 0)
+				continue;
+			float x = Sizes.LEFT_MARGIN + (random.nextFloat() * (ROWS + 2) - 1) * Sizes.STEP;
+			float y = Sizes.TOP_MARGIN + (random.nextFloat() * (COLS + 2) - 1) * Sizes.STEP;
+			cell.getBody().setTransform(new Vec2(x, y), 0);
+			if (i % 10 == 5)
+				cell.getBody().setUserData(CollisionCategory.DESTROYED);
+			else
+				garbages.add((Garbage) cell);
+		}
+		GarbageGrid grid = new GarbageGrid();
+		grid.update(cells);
+		checkQueries("Full", grid, garbages, random);
+
+		List<DisplayableCell> fewer = cells.subList(0, cells.size() / 3);
+		garbages.removeIf(garbage -> !fewer.contains(garbage));
+		grid.update(fewer);
+		checkQueries("Rebuilt", grid, garbages, random);
+
+		if (failures != 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Runs random range and radius queries on the grid, and compares them with a scan of the garbages.
+	 * @param name the name of the check, printed with its result.
+	 * @param grid the grid.
+	 * @param garbages the garbages that must be indexed.
+	 * @param random the random generator of the queries.
+	 */
+	private static void checkQueries(String name, GarbageGrid grid, List<Garbage> garbages, Random random) {
+		int before = failures;
+		if (grid.size() != garbages.size())
+			fail(name + " : " + grid.size() + " garbages indexed instead of " + garbages.size());
+		for (int q = 0; q < QUERIES; q++) {
+			int minRow = random.nextInt(ROWS + 4) - 2;
+			int minCol = random.nextInt(COLS + 4) - 2;
+			int extent = q % 2 == 0 ? 3 : ROWS + COLS;
+			int maxRow = minRow + random.nextInt(extent) - 1;
+			int maxCol = minCol + random.nextInt(extent) - 1;
+			ArrayList<Garbage> expected = new ArrayList<>();
+			for (Garbage garbage : garbages) {
+				Vec2 position = garbage.getBody().getPosition();
+				int row = (int) Math.floor((position.x - Sizes.LEFT_MARGIN) / Sizes.STEP);
+				int col = (int) Math.floor((position.y - Sizes.TOP_MARGIN) / Sizes.STEP);
+				if (row >= minRow && row <= maxRow && col >= minCol && col <= maxCol)
+					expected.add(garbage);
+			}
+			ArrayList<Garbage> found = new ArrayList<>();
+			grid.forEachInRange(minRow, minCol, maxRow, maxCol, found::add);
+			compare(name + " : range (" + minRow + ", " + minCol + ") - (" + maxRow + ", " + maxCol + ")", expected, found);
+
+			float x = Sizes.LEFT_MARGIN + random.nextFloat() * ROWS * Sizes.STEP;
+			float y = Sizes.TOP_MARGIN + random.nextFloat() * COLS * Sizes.STEP;
+			float radius = random.nextFloat() * Sizes.EXPLOSION_RADIUS * 2;
+			expected.clear();
+			for (Garbage garbage : garbages) {
+				Vec2 position = garbage.getBody().getPosition();
+				float dx = position.x - x;
+				float dy = position.y - y;
+				if (dx * dx + dy * dy <= radius * radius)
+					expected.add(garbage);
+			}
+			found.clear();
+			grid.forEachInRadius(x, y, radius, found::add);
+			compare(name + " : radius " + radius + " around (" + x + ", " + y + ")", expected, found);
+		}
+		System.out.println(name + " : " + garbages.size() + " garbages, " + QUERIES + " range and radius queries, "
+				+ (failures - before) + " wrong");
+	}
+
+	/**
+	 * Checks that the found garbages are the expected ones, each found once.
+	 * @param query the description of the query, printed if it is wrong.
+	 * @param expected the expected garbages.
+	 * @param found the garbages given by the query.
+	 */
+	private static void compare(String query, List<Garbage> expected, List<Garbage> found) {
+		Set<Garbage> unique = Collections.newSetFromMap(new IdentityHashMap<>());
+		unique.addAll(found);
+		Set<Garbage> wanted = Collections.newSetFromMap(new IdentityHashMap<>());
+		wanted.addAll(expected);
+		if (unique.size() != found.size() || !unique.equals(wanted))
+			fail(query + " found " + found.size() + " garbages instead of " + expected.size());
+	}
+
+	private static void fail(String message) {
+		failures++;
+		System.err.println(message);
+	}
+}
@@ -0,0 +1,114 @@
+package fr.umlv.wallj.main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import fr.umlv.wallj.display.EventSource;
+import fr.umlv.wallj.game.Board;
+import fr.umlv.wallj.game.Game;
+import fr.umlv.wallj.replay.Recorder;
+import fr.umlv.wallj.replay.Session;
+import fr.umlv.zen5.KeyboardKey;
+
+/**
+ * Records a scripted session of the level 0 of a levels directory, to be run by the {@link Runner}.
+ * The script places the player in the corridor of the bench level ({@code levels/bench}),
+ * drops a bomb under each of its three inner walls, and starts the physics, which is stopped after {@code TICKS} ticks.
+ * The same script gives the same moves in both physics modes, so the two logs can be compared.
+ * Usage : {@code BenchRecorder <levels directory> <file> [--sharded]}.
+ * @author Severin Gosset - Denis Biguenet
+ */
+public class BenchRecorder {
+	private final static int CLICK = -1;
+	private final static int ROW = 14;
+	private final static int TICKS = 3000;
+	/* The events of the script : the event number at which it is given, the event, and the cell of a click */
+	private final static int[][] SCRIPT = {
+			{ 0, CLICK, 15, ROW }, { 1, KeyboardKey.B.ordinal() },
+			{ 2, CLICK, 30, ROW }, { 40, KeyboardKey.B.ordinal() },
+			{ 41, CLICK, 45, ROW }, { 80, KeyboardKey.B.ordinal() },
+			{ 81, KeyboardKey.F.ordinal() },
+			/* Stops the physics after TICKS ticks, as the garbages of the closed rooms take long to settle, then leaves the level */
+			{ 81 + TICKS, KeyboardKey.B.ordinal() }, { 82 + TICKS, KeyboardKey.B.ordinal() } };
+
+	public static void main(String[] args) throws IOException {
+		boolean sharded = args.length == 3 && args[2].equals("--sharded");
+		if (args.length != 2 && !sharded) {
+			System.err.println("Usage : BenchRecorder <levels directory> <file> [--sharded]");
+			System.exit(1);
+		}
+		try (Recorder recorder = new Recorder(Files.newOutputStream(Paths.get(args[1])), sharded)) {
+			Game game = new Game();
+			game.setLevelSource(level -> Board.readLevel(args[0], level));
+			game.setSession(new Session() {
+				@Override
+				public EventSource startLevel(int level, EventSource live) throws IOException {
+					return recorder.startLevel(level, new Script());
+				}
+
+				@Override
+				public void endPhysics(long checksum) throws IOException {
+					recorder.endPhysics(checksum);
+				}
+
+				@Override
+				public boolean isSharded() {
+					return sharded;
+				}
+
+				@Override
+				public boolean isRealTime() {
+					return false;
+				}
+			});
+			if (sharded)
+				game.setShardPool(ForkJoinPool.commonPool());
+			game.nextLevel(0);
+			boolean won = game.playLevel();
+			System.out.println(game.getTicks() + " ticks, won : " + won);
+		}
+	}
+
+	/**
+	 * The events of the script. Each call to {@code waitEvent} is one event number,
+	 * and returns the event of the script given at this number, or -2 if there is none.
+	 */
+	private static class Script implements EventSource {
+		private int event;
+		private int next;
+		private int x;
+		private int y;
+
+		@Override
+		public int waitEvent() {
+			int result = -2;
+			if (next < SCRIPT.length && event >= SCRIPT[next][0]) {
+				result = SCRIPT[next][1];
+				if (result == CLICK) {
+					x = SCRIPT[next][2];
+					y = SCRIPT[next][3];
+				}
+				next++;
+			}
+			event++;
+			return result;
+		}
+
+		@Override
+		public int waitEvent(long timeout) {
+			return waitEvent();
+		}
+
+		@Override
+		public int getXClick() {
+			return x;
+		}
+
+		@Override
+		public int getYClick() {
+			return y;
+		}
+	}
+}